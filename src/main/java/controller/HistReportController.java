@@ -1,6 +1,10 @@
 package controller;
 
 import fxapp.MainFXApplication;
+import fxapp.PpmStats;
+import fxapp.ReportChange;
+import fxapp.ReportQuery;
+import model.GeoBox;
 import javafx.fxml.FXML;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.XYChart;
@@ -21,6 +25,7 @@ public class HistReportController {
     private final ArrayList<Queue<PurityReport>> reportsList =
             new ArrayList<>(12);
     private final double[] ppms = new double[12];
+    private PpmStats[] monthlyStats;
 
     @FXML
     private LineChart<String, Number> historicalChart;
@@ -76,28 +81,66 @@ public class HistReportController {
      * @param reports the reports list to be filtered.
      */
     public void setReportsList(Stream<? extends Report> reports) {
+        monthlyStats = null;
         reportsList.clear();
         for (int i = 0; i < 12; i++) {
             Queue<PurityReport> queue = new LinkedList<>();
             reportsList.add(queue);
         }
-        reports = reports.filter(Report ->
-                Report.getLocation().getLatitude() >= historicalData.getLatMin()
-                && Report.getLocation().getLatitude()
-                        <= historicalData.getLatMax()
-                && Report.getLocation().getLongitude()
-                        >= historicalData.getLongMin()
-                && Report.getLocation().getLongitude()
-                        <= historicalData.getLongMax());
-        reports = reports.filter(Report ->
-                Report.getReportYear() == historicalData.getYear());
-        reports.forEach(Report ->
+        ReportQuery query = ReportQuery.builder()
+                .type(PurityReport.class)
+                .within(historicalData.getRegion())
+                .inYear(historicalData.getYear())
+                .build();
+        reports.filter(query::matches).forEach(Report ->
                 reportsList.get(Report.getReportMonth())
                         .add(Report.getPurityReport()));
     }
 
     /**
-     * Creates graph from current report list.
+     * sets the graph to precomputed monthly summaries instead of a report
+     * list, as kept by the report manager's rollups
+     * @param monthlyStats twelve summaries of the selected PPM, January
+     *                     first
+     */
+    public void setMonthlyStats(PpmStats[] monthlyStats) {
+        reportsList.clear();
+        this.monthlyStats = monthlyStats;
+    }
+
+    /**
+     * Folds newly added purity reports from the graphed region and year
+     * into the monthly summaries and redraws the graph.
+     * @param change the reports added
+     */
+    public void reportsChanged(ReportChange change) {
+        if (monthlyStats == null || historicalData == null) {
+            return;
+        }
+        boolean virus = historicalData.getContaminantType()
+                .equals("Virus PPM");
+        GeoBox box = historicalData.getRegion();
+        boolean changed = false;
+        for (Report r : change.getAdded()) {
+            PurityReport p = r.getPurityReport();
+            if (p != null && box.contains(p.getLocation())
+                    && p.getReportYear() == historicalData.getYear()) {
+                monthlyStats[p.getReportMonth()].add(virus
+                        ? p.getVirusPPM() : p.getContaminantPPM());
+                changed = true;
+            }
+        }
+        if (changed) {
+            if (historicalChart != null) {
+                historicalChart.getData().clear();
+            }
+            setGraph();
+        }
+    }
+
+    /**
+     * Creates graph from the monthly summaries if set, otherwise from the
+     * current report list.
      */
     public void setGraph() {
         XYChart.Series<String, Number> series = new XYChart.Series<>();
@@ -113,6 +156,9 @@ public class HistReportController {
             if (historicalChart != null) {
                 historicalChart.getYAxis().setLabel("PPM");
             }
+            if (monthlyStats != null) {
+                setPPMFromStats();
+            }
             int counter = 0;
             for (Queue<PurityReport> queue : reportsList) {
                 double average = 0;
@@ -148,6 +194,9 @@ public class HistReportController {
             if (historicalChart != null) {
                 historicalChart.getYAxis().setLabel("PPM");
             }
+            if (monthlyStats != null) {
+                setPPMFromStats();
+            }
             int counter = 0;
             for (Queue<PurityReport> queue : reportsList) {
                 double average = 0;
@@ -176,4 +225,15 @@ public class HistReportController {
             }
         }
     }
+
+    /**
+     * Fills the monthly averages from the monthly summaries, -1 marks a
+     * month without reports
+     */
+    private void setPPMFromStats() {
+        for (int i = 0; i < 12; i++) {
+            ppms[i] = (monthlyStats[i].getCount() == 0)
+                    ? -1.0 : monthlyStats[i].getMean();
+        }
+    }
 }
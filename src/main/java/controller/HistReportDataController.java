@@ -56,7 +56,6 @@ public class HistReportDataController {
     @FXML
     public void onSubmitSelected() {
         try {
-            boolean validInput = true;
             String latStringMin = latitudeFieldMin.getText();
             String longStringMin = longitudeFieldMin.getText();
             String latStringMax = latitudeFieldMax.getText();
@@ -69,37 +68,14 @@ public class HistReportDataController {
             int year = Integer.parseInt(yearString);
             String contaminantType = contTypeBox
                     .getSelectionModel().getSelectedItem();
-            if (latitudeMin > latitudeMax || longitudeMin > longitudeMax) {
-                errorMessage.setText("coordinates are in wrong order");
-                validInput = false;
-            }
-            if (contaminantType == null) {
-                errorMessage.setText("select contaminant type");
-                validInput = false;
-            }
-            if (latitudeMin > 90.0 || latitudeMin < -90.0) {
-                errorMessage.setText("coordinates outside range");
-                validInput = false;
-            } else if (longitudeMin > 180.0 || latitudeMin < -180.0) {
-                errorMessage.setText("coordinates outside range");
-                validInput = false;
-            }
-            if (year > 2500 || year < 1800) {
-                errorMessage.setText("Year outside of year range");
-                validInput = false;
-            }
-            if (latitudeMax > 90.0 || latitudeMax < -90.0) {
-                errorMessage.setText("coordinates outside range");
-                validInput = false;
-            } else if (longitudeMax > 180.0 || latitudeMax < -180.0) {
-                errorMessage.setText("coordinates outside range");
-                validInput = false;
-            }
-            if (validInput) {
+            HistoricalData hData = new HistoricalData(latitudeMin,
+                    latitudeMax, longitudeMin,
+                    longitudeMax, year, contaminantType);
+            String error = hData.validate();
+            if (error != null) {
+                errorMessage.setText(error);
+            } else {
                 errorMessage.setText("");
-                HistoricalData hData = new HistoricalData(latitudeMin,
-                        latitudeMax, longitudeMin,
-                        longitudeMax, year, contaminantType);
                 main.setHistReportScene(hData);
             }
         } catch (Exception e) {
@@ -5,26 +5,42 @@ import com.lynden.gmapsfx.MapComponentInitializedListener;
 import com.lynden.gmapsfx.javascript.event.UIEventType;
 import com.lynden.gmapsfx.javascript.object.GoogleMap;
 import com.lynden.gmapsfx.javascript.object.LatLong;
+import com.lynden.gmapsfx.javascript.object.LatLongBounds;
 import com.lynden.gmapsfx.javascript.object.MapOptions;
 import com.lynden.gmapsfx.javascript.object.MapTypeIdEnum;
 import com.lynden.gmapsfx.javascript.object.Marker;
 import com.lynden.gmapsfx.javascript.object.MarkerOptions;
 import fxapp.MainFXApplication;
+import fxapp.PersistenceException;
+import fxapp.ReportChange;
 import fxapp.ReportManager;
+import fxapp.ReportQuery;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import model.GeoBox;
 import model.Report;
 import netscape.javascript.JSObject;
 
 import java.net.URL;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.stream.Stream;
+import java.util.Set;
 
 /**
  * Handles the water availability screen.
+ *
+ * Only the reports in the part of the map on screen are marked, newest
+ * first up to a limit, so older reports left in the database are read
+ * a viewport at a time rather than all at once.
  */
 public class MapScreenController implements Initializable,
         MapComponentInitializedListener {
+    private static final int MAX_MARKERS = 500;
+
     private MainFXApplication main;
 
     @FXML
@@ -32,6 +48,9 @@ public class MapScreenController implements Initializable,
 
     private GoogleMap map;
 
+    private final Map<Report, Marker> markers = new IdentityHashMap<>();
+    private GeoBox viewport;
+
     /**
      * Called automatically on view initialization
      * sets up map view
@@ -62,24 +81,96 @@ public class MapScreenController implements Initializable,
                 .mapType(MapTypeIdEnum.ROADMAP);
 
         map = mapView.createMap(options);
+        map.addUIEventHandler(UIEventType.idle,
+            (JSObject obj) -> refreshMarkers());
     }
 
     /**
-     * Updates the map with the location of each water report
+     * Marks the newest reports in the part of the map on screen, and
+     * removes the markers of reports no longer in it. Runs when the map
+     * is shown and whenever it stops moving. If the reports cannot be
+     * read, the markers are left as they are.
      */
     public void refreshMarkers() {
-        LatLong center = new LatLong(33.7756, -84.3963);
         ReportManager rm = main.getReportManager();
-        Stream<Report> reportStream = rm.getAllReports();
-        reportStream.forEach(r -> {
-            MarkerOptions mo = new MarkerOptions();
-            mo.position(r.getLocation().toLatLong());
-            mo.title(r.toString());
-            Marker marker = new Marker(mo);
-            map.addMarker(marker);
-            map.addUIEventHandler(marker, UIEventType.click,
-                (JSObject obj) -> main.setReportDetailsScene(r));
-        });
+        GeoBox box = visibleBox();
+        if (rm == null || box == null) {
+            return;
+        }
+        List<Report> found;
+        try {
+            found = rm.find(ReportQuery.builder().within(box)
+                    .orderBy(ReportQuery.Order.NEWEST_FIRST)
+                    .limit(MAX_MARKERS).build());
+        } catch (PersistenceException e) {
+            e.printStackTrace();
+            return;
+        }
+        viewport = box;
+        Set<Report> shown = Collections.newSetFromMap(
+                new IdentityHashMap<>());
+        shown.addAll(found);
+        Iterator<Map.Entry<Report, Marker>> it =
+                markers.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Report, Marker> e = it.next();
+            if (!shown.contains(e.getKey())) {
+                map.removeMarker(e.getValue());
+                it.remove();
+            }
+        }
+        found.forEach(this::addMarker);
+    }
+
+    /**
+     * Gets the part of the map on screen
+     * @return the box, or null if the map has not been drawn yet
+     */
+    private GeoBox visibleBox() {
+        if (map == null) {
+            return null;
+        }
+        LatLongBounds bounds = map.getBounds();
+        if (bounds == null) {
+            return null;
+        }
+        LatLong ne = bounds.getNorthEast();
+        LatLong sw = bounds.getSouthWest();
+        return new GeoBox(sw.getLatitude(), ne.getLatitude(),
+                sw.getLongitude(), ne.getLongitude());
+    }
+
+    /**
+     * Adds markers for new reports on screen
+     * @param change the reports added
+     */
+    public void reportsChanged(ReportChange change) {
+        if (viewport == null) {
+            return;
+        }
+        for (Report r : change.getAdded()) {
+            if (viewport.contains(r.getLocation())) {
+                addMarker(r);
+            }
+        }
+    }
+
+    /**
+     * Adds a marker for a report unless it already has one
+     * @param r the report to mark
+     */
+    private void addMarker(Report r) {
+        if (markers.containsKey(r)) {
+            return;
+        }
+        MarkerOptions mo = new MarkerOptions();
+        mo.position(r.getLocation().toLatLong());
+        mo.title(r.toString());
+        Marker marker = new Marker(mo);
+        map.addMarker(marker);
+        map.addUIEventHandler(marker, UIEventType.click,
+            (JSObject obj) -> main.setReportDetailsScene(r));
+        markers.put(r, marker);
     }
 
     /**
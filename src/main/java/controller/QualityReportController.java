@@ -8,6 +8,7 @@ import javafx.scene.control.TextField;
 import javafx.scene.text.Text;
 import model.Location;
 import model.PurityReport;
+import model.WaterTerms;
 
 public class QualityReportController {
     private int reportNum;
@@ -35,7 +36,7 @@ public class QualityReportController {
      */
     @FXML
     public void initialize() {
-        waterTypeBox.getItems().addAll("Safe", "Treatable", "Unsafe");
+        waterTypeBox.getItems().addAll(WaterTerms.PURITY_CONDITIONS);
     }
 
     /**
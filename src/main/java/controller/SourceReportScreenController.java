@@ -7,6 +7,7 @@ import javafx.scene.control.TextField;
 import javafx.scene.text.Text;
 import model.Location;
 import model.SourceReport;
+import model.WaterTerms;
 
 /**
  * Handles the source report screen of the app.
@@ -36,10 +37,8 @@ public class SourceReportScreenController {
      */
     @FXML
     public void initialize() {
-        waterTypeBox.getItems().addAll("Bottled", "Well", "Stream",
-                "Lake", "Spring", "Other");
-        waterConditionBox.getItems().addAll("Waste", "Treatable-Clear",
-                "Treatable-Muddy", "Potable");
+        waterTypeBox.getItems().addAll(WaterTerms.SOURCE_TYPES);
+        waterConditionBox.getItems().addAll(WaterTerms.SOURCE_CONDITIONS);
     }
 
     /**
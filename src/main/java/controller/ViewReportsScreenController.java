@@ -1,22 +1,52 @@
 package controller;
 
 import fxapp.MainFXApplication;
+import fxapp.Page;
+import fxapp.ReportChange;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
+import javafx.scene.control.Button;
 import javafx.scene.control.ListView;
 import model.Report;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * Handles the report viewer screen.
+ *
+ * Pages are fetched on a background thread, since fetching one first
+ * waits for queued reports to be written, and are added to the list on
+ * the FX thread.
  */
 public class ViewReportsScreenController {
+    private static final int PAGE_SIZE = 200;
+    private static final Executor PAGE_LOADER =
+            Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "report-pages");
+                t.setDaemon(true);
+                return t;
+            });
+
     private MainFXApplication main;
+    private Page.Source<? extends Report> pages;
+    private Page.Token nextPage;
+    private Class<? extends Report> shownType;
+    private int lastShownNum;
+    private boolean loading;
+    private final List<Report> addedWhileLoading = new ArrayList<>();
 
     @FXML
     private ListView<String> reportsList;
 
+    @FXML
+    private Button moreButton;
+
     /**
      * Called automatically on view initialization
      */
@@ -39,11 +69,125 @@ public class ViewReportsScreenController {
      * @param reports to store.
      */
     public void setReportsList(Stream<? extends Report> reports) {
+        pages = null;
+        loading = false;
+        addedWhileLoading.clear();
+        moreButton.setVisible(false);
         reportsList.getItems().clear();
         reportsList.getItems().addAll(reports.map(Report::toString)
                 .collect(Collectors.toList()));
     }
 
+    /**
+     * Shows the first page of reports from the source, more pages are
+     * loaded as the user asks for them.
+     * @param type the type of report shown
+     * @param source the paginated reports to show
+     * @param <R> the type of report shown
+     */
+    public <R extends Report> void setReportsPages(Class<R> type,
+                                                   Page.Source<R> source) {
+        pages = source;
+        shownType = type;
+        nextPage = null;
+        lastShownNum = 0;
+        addedWhileLoading.clear();
+        reportsList.getItems().clear();
+        loadPage();
+    }
+
+    /**
+     * Appends new reports to the list. They are only appended once every
+     * page has been loaded, until then they turn up in a later page.
+     * Reports added while a page is loading are held until it arrives.
+     * @param change the reports added
+     */
+    public void reportsChanged(ReportChange change) {
+        if (pages == null) {
+            return;
+        }
+        if (loading) {
+            addedWhileLoading.addAll(change.getAdded());
+            return;
+        }
+        appendNew(change.getAdded());
+    }
+
+    /**
+     * Appends the reports of the shown type newer than the last one
+     * shown, once every page has been loaded
+     * @param added the added reports
+     */
+    private void appendNew(List<Report> added) {
+        if (nextPage != null) {
+            return;
+        }
+        for (Report r : added) {
+            if (shownType.isInstance(r) && r.getReportNum() > lastShownNum) {
+                reportsList.getItems().add(r.toString());
+                lastShownNum = r.getReportNum();
+            }
+        }
+    }
+
+    /**
+     * Appends the next page of reports to the list
+     */
+    @FXML
+    public void onMoreSelected() {
+        if (pages != null && nextPage != null && !loading) {
+            loadPage();
+        }
+    }
+
+    /**
+     * Fetches the page after the last one shown in the background, then
+     * appends it on the FX thread unless another list was shown since
+     */
+    private void loadPage() {
+        Page.Source<? extends Report> source = pages;
+        Page.Token after = nextPage;
+        loading = true;
+        moreButton.setDisable(true);
+        PAGE_LOADER.execute(() -> {
+            Page<? extends Report> page;
+            try {
+                page = source.fetch(after, PAGE_SIZE);
+            } catch (SQLException e) {
+                e.printStackTrace();
+                page = null;
+            }
+            Page<? extends Report> fetched = page;
+            Platform.runLater(() -> {
+                if (pages == source) {
+                    showPage(fetched);
+                }
+            });
+        });
+    }
+
+    /**
+     * Appends a fetched page and the reports added while it loaded
+     * @param page the page, or null if it could not be fetched
+     */
+    private void showPage(Page<? extends Report> page) {
+        loading = false;
+        moreButton.setDisable(false);
+        if (page == null) {
+            nextPage = null;
+        } else {
+            reportsList.getItems().addAll(page.getItems().stream()
+                    .map(Report::toString).collect(Collectors.toList()));
+            for (Report r : page.getItems()) {
+                lastShownNum = Math.max(lastShownNum, r.getReportNum());
+            }
+            nextPage = page.getNextToken();
+        }
+        moreButton.setVisible(nextPage != null);
+        appendNew(new ArrayList<>(addedWhileLoading));
+        addedWhileLoading.clear();
+    }
+
     /**
      * Take the user back to the home page
      */
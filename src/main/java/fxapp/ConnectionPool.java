@@ -0,0 +1,554 @@
+package fxapp;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded pool of long-lived SQLite connections.
+ *
+ * SQLite only allows one writer at a time, so writes share a single
+ * connection guarded by a (reentrant) lock while reads draw from a small
+ * pool of reader connections. Connections handed out by the pool are
+ * returned to it when closed, so callers keep using try-with-resources.
+ * They also implement {@link StatementCache}, so statements prepared
+ * through it live as long as the physical connection does, or until
+ * newer statements push them out of the bounded cache. Any other
+ * statement a caller leaves open is closed when the lease is returned,
+ * along with its result sets.
+ */
+public class ConnectionPool {
+    private final DatabaseConfig config;
+    private final Deque<PooledConnection> idleReaders = new ArrayDeque<>();
+    private int openReaders;
+    private boolean closed;
+
+    private final ReentrantLock writerLock = new ReentrantLock(true);
+    private volatile PooledConnection writer;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Creates an empty pool, connections are opened on demand
+     *
+     * @param config database settings to open connections with
+     */
+    public ConnectionPool(DatabaseConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Leases the writer connection, waiting for the current writer to
+     * finish. A thread that already holds the writer may lease it again.
+     *
+     * @return the writer connection, returned to the pool when closed
+     * @throws SQLException if the pool is closed or the wait times out
+     */
+    public Connection acquireWriter() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!writerLock.tryLock(config.getAcquireTimeoutMillis(),
+                    TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for the writer "
+                        + "connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for the writer "
+                    + "connection", e);
+        }
+        final PooledConnection pc;
+        try {
+            synchronized (this) {
+                ensureOpen();
+            }
+            if (writer != null && writerLock.getHoldCount() == 1
+                    && writer.isIdleSince(idleCutoff())) {
+                writer.closeQuietly();
+                writer = null;
+            }
+            if (writer == null) {
+                writer = open();
+            }
+            pc = writer;
+        } catch (SQLException e) {
+            writerLock.unlock();
+            throw e;
+        }
+        recordAcquire(start);
+        return pc.lease(() -> {
+            if (writerLock.getHoldCount() == 1) {
+                pc.reset();
+            }
+            writerLock.unlock();
+        });
+    }
+
+    /**
+     * Leases a reader connection, opening a new one if the pool has room
+     * and waiting for one to be returned otherwise.
+     *
+     * @return a reader connection, returned to the pool when closed
+     * @throws SQLException if the pool is closed or the wait times out
+     */
+    public Connection acquireReader() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS
+                .toNanos(config.getAcquireTimeoutMillis());
+        PooledConnection pc = null;
+        synchronized (this) {
+            while (pc == null) {
+                ensureOpen();
+                evictIdleReaders();
+                if (!idleReaders.isEmpty()) {
+                    pc = idleReaders.pollFirst();
+                } else if (openReaders < config.getMaxReaders()) {
+                    openReaders++;
+                    break;
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new SQLException("Timed out waiting for a "
+                                + "reader connection");
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted waiting for a "
+                                + "reader connection", e);
+                    }
+                }
+            }
+        }
+        if (pc == null) {
+            try {
+                pc = open();
+            } catch (SQLException e) {
+                synchronized (this) {
+                    openReaders--;
+                    notifyAll();
+                }
+                throw e;
+            }
+        }
+        recordAcquire(start);
+        final PooledConnection leased = pc;
+        return leased.lease(() -> releaseReader(leased));
+    }
+
+    /**
+     * Takes a snapshot of the pool's counters.
+     *
+     * @return the current pool metrics
+     */
+    public PoolMetrics getMetrics() {
+        int idle;
+        synchronized (this) {
+            idle = idleReaders.size();
+        }
+        if (writer != null && !writerLock.isLocked()) {
+            idle++;
+        }
+        return new PoolMetrics(active.get(), idle, acquisitions.get(),
+                totalWaitNanos.get(), maxWaitNanos.get());
+    }
+
+    /**
+     * Closes every idle connection and stops handing out new ones.
+     * Connections still leased are closed as they are returned.
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            for (PooledConnection pc : idleReaders) {
+                pc.closeQuietly();
+            }
+            openReaders -= idleReaders.size();
+            idleReaders.clear();
+            notifyAll();
+        }
+        writerLock.lock();
+        try {
+            if (writer != null) {
+                writer.closeQuietly();
+                writer = null;
+            }
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    /**
+     * Returns a reader to the idle pool, or closes it if the pool is shut.
+     * @param pc the reader being returned
+     */
+    private void releaseReader(PooledConnection pc) {
+        pc.reset();
+        synchronized (this) {
+            if (closed || pc.isBroken()) {
+                pc.closeQuietly();
+                openReaders--;
+            } else {
+                idleReaders.addFirst(pc);
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Closes readers that have not been used within the idle timeout.
+     * The most recently used readers sit at the head of the deque, so
+     * only the tail needs to be checked.
+     */
+    private void evictIdleReaders() {
+        long cutoff = idleCutoff();
+        while (!idleReaders.isEmpty()
+                && idleReaders.peekLast().isIdleSince(cutoff)) {
+            idleReaders.pollLast().closeQuietly();
+            openReaders--;
+        }
+    }
+
+    /**
+     * Gets the last-use time before which a connection counts as idle.
+     * @return the cutoff, in milliseconds since the epoch
+     */
+    private long idleCutoff() {
+        return System.currentTimeMillis() - config.getIdleTimeoutMillis();
+    }
+
+    /**
+     * Fails if the pool has been closed.
+     * @throws SQLException if the pool is closed
+     */
+    private void ensureOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+    }
+
+    /**
+     * Opens a new physical connection to the database and applies the
+     * configured storage profile to it.
+     * @return the new connection
+     * @throws SQLException if the database cannot be opened
+     */
+    private PooledConnection open() throws SQLException {
+        Connection conn = DriverManager.getConnection(config.getUrl());
+        try {
+            config.getStorageProfile().apply(conn);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return new PooledConnection(conn);
+    }
+
+    /**
+     * Updates the wait-time counters after a connection is handed out.
+     * @param start when the caller started waiting, from System.nanoTime
+     */
+    private void recordAcquire(long start) {
+        long waited = System.nanoTime() - start;
+        active.incrementAndGet();
+        acquisitions.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private class PooledConnection {
+        private final Connection conn;
+        private final Map<String, PreparedStatement> statements =
+                new StatementLru(config.getStatementCacheSize());
+        private volatile long lastUsed = System.currentTimeMillis();
+        private boolean broken;
+
+        /**
+         * Wraps a freshly opened connection
+         * @param conn the physical connection
+         */
+        PooledConnection(Connection conn) {
+            this.conn = conn;
+        }
+
+        /**
+         * Checks whether this connection was last used before the cutoff
+         * @param cutoff time in milliseconds since the epoch
+         * @return true if the connection has been idle since the cutoff
+         */
+        boolean isIdleSince(long cutoff) {
+            return lastUsed < cutoff;
+        }
+
+        /**
+         * Checks whether the connection failed to reset on release
+         * @return true if the connection should not be reused
+         */
+        boolean isBroken() {
+            return broken;
+        }
+
+        /**
+         * Rolls back anything a caller left open and marks the connection
+         * as just used.
+         */
+        void reset() {
+            lastUsed = System.currentTimeMillis();
+            try {
+                if (!conn.getAutoCommit()) {
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                broken = true;
+            }
+        }
+
+        /**
+         * Gets the cached statement for the SQL, preparing it on a miss.
+         * Only the thread leasing the connection touches the cache.
+         *
+         * @param sql               the statement's SQL
+         * @param autoGeneratedKeys whether to return generated keys
+         * @return the prepared statement
+         * @throws SQLException if the statement cannot be prepared
+         */
+        PreparedStatement cachedStatement(String sql, int autoGeneratedKeys)
+                throws SQLException {
+            PreparedStatement ps = statements.get(sql);
+            if (ps == null) {
+                ps = discardOnError(sql,
+                        conn.prepareStatement(sql, autoGeneratedKeys));
+                statements.put(sql, ps);
+            }
+            return ps;
+        }
+
+        /**
+         * Wraps a statement so that it leaves the cache and is closed as
+         * soon as one of its calls fails. The SQLite driver finalizes a
+         * statement whose execution fails, a constraint violation say,
+         * yet still reports it as open, so a failed statement can never
+         * be trusted again.
+         *
+         * @param sql the statement's SQL
+         * @param ps  the freshly prepared statement
+         * @return the statement to cache
+         */
+        private PreparedStatement discardOnError(String sql,
+                                                 PreparedStatement ps) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                try {
+                    return method.invoke(ps, args);
+                } catch (InvocationTargetException e) {
+                    if (e.getCause() instanceof SQLException
+                            && statements.get(sql) == proxy) {
+                        statements.remove(sql);
+                        try {
+                            ps.close();
+                        } catch (SQLException closing) {
+                            e.getCause().addSuppressed(closing);
+                        }
+                    }
+                    throw e.getCause();
+                }
+            };
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, handler);
+        }
+
+        /**
+         * Closes the physical connection, ignoring errors.
+         */
+        void closeQuietly() {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * Remembers a statement created during a lease, first dropping
+         * the ones already closed so a long lease does not pile them up.
+         * @param opened statements created during the lease
+         * @param stmt   the new statement
+         * @throws SQLException exception
+         */
+        void track(List<Statement> opened, Statement stmt)
+                throws SQLException {
+            if (opened.size() >= 16) {
+                Iterator<Statement> it = opened.iterator();
+                while (it.hasNext()) {
+                    if (it.next().isClosed()) {
+                        it.remove();
+                    }
+                }
+            }
+            opened.add(stmt);
+        }
+
+        /**
+         * Closes statements a caller left open, ignoring errors.
+         * @param opened statements created during one lease
+         */
+        void closeStatements(List<Statement> opened) {
+            for (Statement stmt : opened) {
+                try {
+                    if (!stmt.isClosed()) {
+                        stmt.close();
+                    }
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+            opened.clear();
+        }
+
+        /**
+         * Hands the connection to a caller behind a proxy whose close()
+         * closes the statements the caller opened and runs the release
+         * action instead of closing the connection.
+         *
+         * @param release action returning the connection to the pool
+         * @return the leased connection
+         */
+        Connection lease(Runnable release) {
+            InvocationHandler handler = new InvocationHandler() {
+                private final List<Statement> opened = new ArrayList<>();
+                private boolean released;
+
+                @Override
+                public Object invoke(Object proxy, Method method,
+                                     Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                    case "cachedStatement":
+                        if (released) {
+                            throw new SQLException("Connection has been "
+                                    + "returned to the pool");
+                        }
+                        return cachedStatement((String) args[0],
+                                (Integer) args[1]);
+                    case "hasCachedStatement":
+                        return statements.containsKey((String) args[0]);
+                    case "close":
+                        if (!released) {
+                            released = true;
+                            closeStatements(opened);
+                            active.decrementAndGet();
+                            release.run();
+                        }
+                        return null;
+                    case "isClosed":
+                        return released || conn.isClosed();
+                    default:
+                        if (released) {
+                            throw new SQLException("Connection has been "
+                                    + "returned to the pool");
+                        }
+                        Object result;
+                        try {
+                            result = method.invoke(conn, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        if (result instanceof Statement) {
+                            track(opened, (Statement) result);
+                        }
+                        return result;
+                    }
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] {Connection.class, StatementCache.class},
+                    handler);
+        }
+    }
+
+    /**
+     * Prepared statements of one connection in least recently used order,
+     * closing the eldest once the cache is full.
+     */
+    private static class StatementLru
+            extends LinkedHashMap<String, PreparedStatement> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        /**
+         * Creates an empty cache
+         * @param capacity most statements to keep open
+         */
+        StatementLru(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<String, PreparedStatement> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            try {
+                eldest.getValue().close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Statements kept open on a pooled connection between leases.
+     * Cached statements must not be closed by the caller, only their
+     * result sets.
+     */
+    public interface StatementCache {
+
+        /**
+         * Gets the statement for the SQL, preparing and caching it if
+         * this connection has not seen it before.
+         *
+         * @param sql               the statement's SQL
+         * @param autoGeneratedKeys a Statement generated keys flag
+         * @return the prepared statement
+         * @throws SQLException if the statement cannot be prepared
+         */
+        PreparedStatement cachedStatement(String sql, int autoGeneratedKeys)
+                throws SQLException;
+
+        /**
+         * Checks whether the SQL is already prepared on this connection.
+         *
+         * @param sql the statement's SQL
+         * @return true if a cached statement exists
+         */
+        boolean hasCachedStatement(String sql);
+    }
+}
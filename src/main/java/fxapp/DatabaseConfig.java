@@ -0,0 +1,119 @@
+package fxapp;
+
+/**
+ * Settings used by the DatabaseManager when opening the SQLite store.
+ */
+public class DatabaseConfig {
+    private String url = "jdbc:sqlite:cleanwater.db";
+    private int maxReaders = 4;
+    private long idleTimeoutMillis = 60000;
+    private long acquireTimeoutMillis = 30000;
+    private int statementCacheSize = 128;
+    private StorageProfile storageProfile = StorageProfile.fromName(
+            System.getProperty("cleanwater.storage", "balanced"));
+
+    /**
+     * gets the JDBC url of the database
+     * @return JDBC url
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * sets the JDBC url of the database
+     * @param url new JDBC url
+     */
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    /**
+     * gets the maximum number of pooled read connections
+     * @return maximum number of readers
+     */
+    public int getMaxReaders() {
+        return maxReaders;
+    }
+
+    /**
+     * sets the maximum number of pooled read connections
+     * @param maxReaders new maximum, at least one
+     */
+    public void setMaxReaders(int maxReaders) {
+        if (maxReaders < 1) {
+            throw new IllegalArgumentException("Pool needs at least one reader");
+        }
+        this.maxReaders = maxReaders;
+    }
+
+    /**
+     * gets how long a pooled connection may sit unused before it is closed
+     * @return idle timeout in milliseconds
+     */
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * sets how long a pooled connection may sit unused before it is closed
+     * @param idleTimeoutMillis new idle timeout in milliseconds
+     */
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * gets how long a caller waits for a free connection before giving up
+     * @return acquire timeout in milliseconds
+     */
+    public long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+
+    /**
+     * sets how long a caller waits for a free connection before giving up
+     * @param acquireTimeoutMillis new acquire timeout in milliseconds
+     */
+    public void setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    /**
+     * gets how many prepared statements each connection keeps cached
+     * @return statement cache size
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * sets how many prepared statements each connection keeps cached, the
+     * least recently used statement is closed to make room for a new one
+     * @param statementCacheSize new cache size, at least one
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        if (statementCacheSize < 1) {
+            throw new IllegalArgumentException("Cache needs room for at "
+                    + "least one statement");
+        }
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * gets the pragma profile applied to every connection
+     * @return the storage profile
+     */
+    public StorageProfile getStorageProfile() {
+        return storageProfile;
+    }
+
+    /**
+     * sets the pragma profile applied to every connection. The default is
+     * read from the cleanwater.storage system property, or balanced.
+     * @param storageProfile the new storage profile
+     */
+    public void setStorageProfile(StorageProfile storageProfile) {
+        this.storageProfile = storageProfile;
+    }
+}
@@ -1,76 +1,78 @@
 package fxapp;
 
-import model.Location;
 import model.PermissionLevel;
 import model.Profile;
 import model.PurityReport;
 import model.SourceReport;
 import model.Token;
 import model.User;
+import model.WaterTerms;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Time;
-import java.util.LinkedList;
-import java.util.List;
+import java.sql.Statement;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 public class DatabaseManager {
 
-    @SuppressWarnings("rawtypes")
-    private List<Persistent> helpers;
+    private volatile Map<Class<?>, Persistent<?>> helpers =
+            new IdentityHashMap<>();
 
     private Persistent<User> users;
     private Persistent<Profile> profiles;
     private Persistent<SourceReport> sourceReports;
     private Persistent<PurityReport> purityReports;
 
+    private static final int ID_BLOCK_SIZE = 64;
+
+    private final ConnectionPool pool;
+    private final SchemaMigrator migrator;
+    private final WaterTermTable waterTerms;
+    private final IdAllocator sourceReportIds;
+    private final IdAllocator purityReportIds;
+
     /**
      * Initializes Helpers for users, profiles, and reports
      */
     private void initHelpers() {
         users = createPersistenceHelper(User.class, "users", (ResultSet rs) -> {
-            Profile p = getPersistence(Profile.class).retrieveOne("rowid",
-                    rs.getInt("profile"));
+            Profile p = (rs.getObject("id") == null)
+                    ? new Profile() : reviveProfile(rs);
             return new User(
                     rs.getString("username"),
                     new Token(rs.getString("token")),
                     PermissionLevel.fromInt(rs.getInt("permission")),
-                    (p == null) ? new Profile() : p,
+                    p,
                     rs.getInt("banned") != 0
             );
         });
+        users.setJoin("profiles", "profiles.rowid = users.profile");
 
         profiles = createPersistenceHelper(Profile.class, "profiles",
-            (ResultSet rs) ->
-                new Profile(
-                        rs.getString("name"), rs.getString("email"),
-                        rs.getString("street"), rs.getString("city"),
-                        rs.getString("state"), rs.getString("country"),
-                        rs.getString("org"))
-        );
+                DatabaseManager::reviveProfile);
 
         sourceReports = createPersistenceHelper(SourceReport.class,
-                "source_reports", (rs) -> new SourceReport(
-                rs.getInt("id"),
-                new Location(rs.getDouble("latitude"),
-                        rs.getDouble("longitude")),
-                rs.getString("water_type"),
-                rs.getString("water_condition"),
-                new Time(rs.getLong("datetime"))
-        ));
+                "source_reports", new SourceReportCodec());
 
         purityReports = createPersistenceHelper(PurityReport.class,
-                "purity_reports", (rs) -> new PurityReport(
-                rs.getInt("id"),
-                new Location(rs.getDouble("latitude"),
-                        rs.getDouble("longitude")),
-                rs.getDouble("virus_ppm"),
-                rs.getDouble("contaminant_ppm"),
-                rs.getString("water_condition"),
-                new Time(rs.getLong("datetime"))
-        ));
+                "purity_reports", new PurityReportCodec());
+    }
+
+    /**
+     * Creates a profile from a row containing the profiles columns
+     * @param rs the row of data to instantiate
+     * @return the profile
+     * @throws SQLException exception
+     */
+    private static Profile reviveProfile(ResultSet rs) throws SQLException {
+        return new Profile(
+                rs.getString("name"), rs.getString("email"),
+                rs.getString("street"), rs.getString("city"),
+                rs.getString("state"), rs.getString("country"),
+                rs.getString("org"));
     }
 
     /**
@@ -85,19 +87,137 @@ public class DatabaseManager {
                                               String tableName,
                                               Persistent.Reviver<M> reviver) {
         Persistent<M> p = new Persistent<>(klass, this, tableName, reviver);
-        helpers.add(p);
+        registerPersistence(p);
+        return p;
+    }
+
+    /**
+     * Creates an object to allow persistance, reading rows by position
+     * @param klass Class which needs to persist
+     * @param <M> the class which needs to persist
+     * @param tableName name of table
+     * @param codec reads the class from a row by column position
+     * @return The created persistance helper
+     */
+    private <M> Persistent<M> createPersistenceHelper(Class<M> klass,
+                                              String tableName,
+                                              RowCodec<M> codec) {
+        Persistent<M> p = new Persistent<>(klass, this, tableName, codec);
+        registerPersistence(p);
         return p;
     }
 
+    /**
+     * Initializes the database with the default settings
+     * @throws ClassNotFoundException if org.sqlite.JDBC is not found
+     * @throws SQLException if the database cannot be opened or migrated
+     */
+    public DatabaseManager() throws ClassNotFoundException, SQLException {
+        this(new DatabaseConfig());
+    }
+
     /**
      * Initializes the database
+     * @param config settings for the database and its connection pool
      * @throws ClassNotFoundException if org.sqlite.JDBC is not found
+     * @throws SQLException if the database cannot be opened or migrated,
+     *                      in which case nothing is left open
      */
-    public DatabaseManager() throws ClassNotFoundException {
+    public DatabaseManager(DatabaseConfig config)
+            throws ClassNotFoundException, SQLException {
         Class.forName("org.sqlite.JDBC");
-        helpers = new LinkedList<>();
+        pool = new ConnectionPool(config);
+        migrator = new SchemaMigrator(this);
+        sourceReportIds = new IdAllocator(this, "source_reports", "id",
+                ID_BLOCK_SIZE);
+        purityReportIds = new IdAllocator(this, "purity_reports", "id",
+                ID_BLOCK_SIZE);
+        waterTerms = new WaterTermTable(this);
         initHelpers();
         makePersistence();
+        addMigrations();
+        try {
+            bootstrap();
+        } catch (SQLException e) {
+            pool.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Declares the schema migrations, newest last. Version 1 is the schema
+     * from before the database was versioned.
+     */
+    private void addMigrations() {
+        migrator.add(new Migration(1, "unversioned baseline schema",
+            (Connection conn) -> { }));
+        migrator.add(new Migration(2, "source report water terms as codes",
+            (Connection conn) -> addTermColumns(conn, sourceReports,
+                    "water_type", "water_condition"),
+            waterTerms.backfill("source_reports", "water_type",
+                    "water_condition")));
+        migrator.add(new Migration(3, "purity report water terms as codes",
+            (Connection conn) -> addTermColumns(conn, purityReports,
+                    "water_condition"),
+            waterTerms.backfill("purity_reports", "water_condition")));
+        migrator.add(new Migration(4, "report spatial indexes keyed by id",
+            (Connection conn) -> {
+                sourceReports.rebuildSpatialIndex(conn);
+                purityReports.rebuildSpatialIndex(conn);
+            }));
+    }
+
+    /**
+     * Adds an integer code column next to each water term string column
+     * of an existing report table. A missing table is left to init, which
+     * creates it with the code columns.
+     *
+     * @param conn    the writer connection
+     * @param p       the report table's persistence
+     * @param columns the string columns
+     * @throws SQLException exception
+     */
+    private static void addTermColumns(Connection conn, Persistent<?> p,
+                                       String... columns)
+            throws SQLException {
+        if (!p.exists(conn)) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (String column : columns) {
+                stmt.executeUpdate("ALTER TABLE " + p.getTableName()
+                        + " ADD COLUMN " + column + "_id integer");
+            }
+        }
+    }
+
+    /**
+     * Migrates the schema and creates any missing tables and indexes, all
+     * in one transaction, then hands report numbering to the id
+     * allocators and new water terms to the lookup table, and starts the
+     * chunked backfills in the background.
+     *
+     * @throws SQLException if the schema cannot be brought up to date, in
+     *                      which case none of it is changed
+     */
+    private void bootstrap() throws SQLException {
+        inTransaction((Connection conn) -> {
+            boolean fresh = true;
+            for (Persistent<?> p : helpers.values()) {
+                fresh = fresh && !p.exists(conn);
+            }
+            migrator.migrate(conn, fresh);
+            for (Persistent<?> p : helpers.values()) {
+                p.init(conn);
+            }
+            sourceReportIds.init(conn);
+            purityReportIds.init(conn);
+            waterTerms.init(conn);
+        });
+        SourceReport.setIdSource(sourceReportIds::nextInt);
+        PurityReport.setIdSource(purityReportIds::nextInt);
+        WaterTerms.setResolver(waterTerms::resolve);
+        migrator.startBackfills();
     }
 
     /**
@@ -110,7 +230,8 @@ public class DatabaseManager {
             (User u) -> u.getPermissionLevel().level);
         users.addColumn("profile integer UNIQUE", null);
         users.addColumn("banned integer", User::isBanned);
-        users.init();
+        // username and token are declared UNIQUE, so SQLite already
+        // keeps an index on each of them.
 
         profiles.addColumn("id integer PRIMARY KEY AUTOINCREMENT", null, true);
         profiles.addColumn("name string", Profile::getName);
@@ -120,43 +241,146 @@ public class DatabaseManager {
         profiles.addColumn("state string", Profile::getState);
         profiles.addColumn("country string", Profile::getCountry);
         profiles.addColumn("org string", Profile::getOrg);
-        profiles.init();
 
-        sourceReports.addColumn("id integer", SourceReport::getReportNum, true);
-        sourceReports.addColumn("latitude real",
+        sourceReports.addIntegerColumn("id integer",
+            SourceReport::getReportNum, true);
+        sourceReports.addRealColumn("latitude real",
             (SourceReport sr) -> sr.getLocation().getLatitude());
-        sourceReports.addColumn("longitude real",
+        sourceReports.addRealColumn("longitude real",
             (SourceReport sr) -> sr.getLocation().getLongitude());
+        // water terms are read from the codes into water_terms; the
+        // strings are still written for older versions of the app, and
+        // rows from before the codes are read from them until backfilled
         sourceReports.addColumn("water_type string",
             SourceReport::getWaterType);
         sourceReports.addColumn("water_condition string",
             SourceReport::getWaterCondition);
-        sourceReports.addColumn("datetime integer",
+        sourceReports.addIntegerColumn("water_type_id integer",
+            SourceReport::getWaterTypeCode);
+        sourceReports.addIntegerColumn("water_condition_id integer",
+            SourceReport::getWaterConditionCode);
+        sourceReports.addIntegerColumn("datetime integer",
             (SourceReport sr) -> sr.getCreationDatetime().getTime());
-        sourceReports.init();
+        sourceReports.addIndex("source_reports_id", "id");
+        sourceReports.addIndex("source_reports_datetime", "datetime");
+        sourceReports.addIndex("source_reports_location",
+                "latitude", "longitude");
+        sourceReports.addSpatialIndex("latitude", "longitude");
 
-        purityReports.addColumn("id integer", PurityReport::getReportNum, true);
-        purityReports.addColumn("latitude real",
+        purityReports.addIntegerColumn("id integer",
+            PurityReport::getReportNum, true);
+        purityReports.addRealColumn("latitude real",
             (PurityReport sr) -> sr.getLocation().getLatitude());
-        purityReports.addColumn("longitude real",
+        purityReports.addRealColumn("longitude real",
             (PurityReport sr) -> sr.getLocation().getLongitude());
-        purityReports.addColumn("virus_ppm real", PurityReport::getVirusPPM);
-        purityReports.addColumn("contaminant_ppm real",
+        purityReports.addRealColumn("virus_ppm real",
+            PurityReport::getVirusPPM);
+        purityReports.addRealColumn("contaminant_ppm real",
             PurityReport::getContaminantPPM);
         purityReports.addColumn("water_condition string",
             PurityReport::getWaterCondition);
-        purityReports.addColumn("datetime integer",
+        purityReports.addIntegerColumn("water_condition_id integer",
+            PurityReport::getWaterConditionCode);
+        purityReports.addIntegerColumn("datetime integer",
             (PurityReport pr) -> pr.getCreationDatetime().getTime());
-        purityReports.init();
+        purityReports.addIndex("purity_reports_id", "id");
+        purityReports.addIndex("purity_reports_datetime", "datetime");
+        purityReports.addIndex("purity_reports_location",
+                "latitude", "longitude");
+        purityReports.addSpatialIndex("latitude", "longitude");
     }
 
     /**
-     * Loads database from file
+     * Leases the pooled writer connection. Only one thread writes at a
+     * time, closing the connection hands it back to the pool.
      * @return connection to the database file
      * @throws SQLException If database cannot be loaded
      */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection("jdbc:sqlite:cleanwater.db");
+        return pool.acquireWriter();
+    }
+
+    /**
+     * Leases a pooled connection for queries. Closing the connection
+     * hands it back to the pool.
+     * @return read connection to the database file
+     * @throws SQLException If database cannot be loaded
+     */
+    public Connection getReadConnection() throws SQLException {
+        return pool.acquireReader();
+    }
+
+    /**
+     * Runs work on the writer connection inside a single transaction,
+     * committing if it succeeds and rolling back if it throws. If the
+     * calling thread is already in a transaction the work joins it.
+     *
+     * @param work the statements to run
+     * @throws SQLException if the work fails or cannot be committed
+     */
+    public void inTransaction(Transaction work) throws SQLException {
+        try (Connection conn = getConnection()) {
+            if (!conn.getAutoCommit()) {
+                work.run(conn);
+                return;
+            }
+            conn.setAutoCommit(false);
+            try {
+                work.run(conn);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Gets the migrator that keeps the schema up to date.
+     * @return the schema migrator
+     */
+    public SchemaMigrator getMigrator() {
+        return migrator;
+    }
+
+    /**
+     * Gets the current usage of the connection pool.
+     * @return wait time, active and idle connection counts
+     */
+    public PoolMetrics getPoolMetrics() {
+        return pool.getMetrics();
+    }
+
+    /**
+     * Closes all pooled connections to the database. New reports go back
+     * to taking their numbers and water term codes from memory.
+     */
+    public void close() {
+        SourceReport.setIdSource(null);
+        PurityReport.setIdSource(null);
+        WaterTerms.setResolver(null);
+        pool.close();
+    }
+
+    /**
+     * Registers a persistence helper so getPersistence can find it by its
+     * type. The first helper registered for a type is kept.
+     *
+     * Lookups happen on every store and update, so the registry is an
+     * identity map that is copied on (rare) registration and read
+     * without locking.
+     *
+     * @param p the persistence helper
+     * @param <M> the class which the persistance helper stores.
+     */
+    public synchronized <M> void registerPersistence(Persistent<M> p) {
+        if (!helpers.containsKey(p.getType())) {
+            Map<Class<?>, Persistent<?>> copy = new IdentityHashMap<>(helpers);
+            copy.put(p.getType(), p);
+            helpers = copy;
+        }
     }
 
     /**
@@ -164,11 +388,26 @@ public class DatabaseManager {
      * @param c the class which the persistence helper stores.
      * @param <M> the class which the persistance helper stores.
      * @return The persistence helper
+     * @throws NoSuchElementException if no helper stores the class
      */
     @SuppressWarnings("unchecked")
     public <M> Persistent<M> getPersistence(final Class<M> c) {
-        return helpers.stream().filter((p) ->
-                p.getType().equals(c)).findFirst().get();
+        Persistent<M> p = (Persistent<M>) helpers.get(c);
+        if (p == null) {
+            throw new NoSuchElementException("No persistence for " + c);
+        }
+        return p;
     }
 
+    @FunctionalInterface
+    public interface Transaction {
+
+        /**
+         * Runs statements on the writer connection
+         *
+         * @param conn the writer connection, already in a transaction
+         * @throws SQLException exception
+         */
+        void run(Connection conn) throws SQLException;
+    }
 }
@@ -0,0 +1,155 @@
+package fxapp;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out unique ids for one table without touching the database on
+ * every call. Ids are reserved from the database in blocks: the
+ * id_allocations table keeps a high-water mark per name, and each block
+ * moves it forward inside a write transaction, so two threads or two
+ * processes never get the same block. Within a block ids come from an
+ * atomic counter.
+ *
+ * Ids left in a block when the app stops are never used, so ids are
+ * unique and increasing per process but may have gaps.
+ */
+public class IdAllocator {
+    private final DatabaseManager db;
+    private final String name;
+    private final String table;
+    private final String column;
+    private final int blockSize;
+    private volatile Block block = new Block(0, 0);
+
+    /**
+     * Creates an allocator, init must run before the first id is taken
+     *
+     * @param db        database holding the high-water mark
+     * @param table     table the ids are for, also the allocator's name
+     * @param column    the table's id column, used to seed the mark
+     * @param blockSize how many ids to reserve at once
+     */
+    public IdAllocator(DatabaseManager db, String table, String column,
+                       int blockSize) {
+        this.db = db;
+        this.name = table;
+        this.table = table;
+        this.column = column;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Creates the id_allocations table if it is missing and seeds this
+     * allocator's mark from the largest id already stored. The id column
+     * is indexed, so seeding reads one index entry instead of every row.
+     *
+     * @param conn the writer connection
+     * @throws SQLException exception
+     */
+    void init(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS id_allocations ("
+                    + "name string PRIMARY KEY, high_water integer)");
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT OR IGNORE INTO id_allocations (name, high_water) "
+                + "SELECT ?, coalesce(max(" + column + "), 0) FROM "
+                + table)) {
+            ps.setString(1, name);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Takes the next id, reserving a new block when the current one is
+     * used up. Reserving waits for the writer connection, so take ids
+     * before opening a transaction rather than inside one.
+     *
+     * @return a new id
+     * @throws PersistenceException if a block cannot be reserved
+     */
+    public long next() {
+        while (true) {
+            Block b = block;
+            long id = b.next.getAndIncrement();
+            if (id < b.limit) {
+                return id;
+            }
+            synchronized (this) {
+                if (block == b) {
+                    block = reserve();
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes the next id as an int, for models numbered with ints
+     *
+     * @return a new id
+     * @throws PersistenceException if a block cannot be reserved
+     * @throws ArithmeticException if the ids no longer fit in an int
+     */
+    public int nextInt() {
+        return Math.toIntExact(next());
+    }
+
+    /**
+     * Moves the high-water mark forward by one block.
+     *
+     * @return the block of ids between the old and new mark
+     * @throws PersistenceException if the mark cannot be updated
+     */
+    private Block reserve() {
+        long[] high = new long[1];
+        try {
+            db.inTransaction((Connection conn) -> {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE id_allocations SET high_water = high_water + ?"
+                        + " WHERE name = ?")) {
+                    ps.setInt(1, blockSize);
+                    ps.setString(2, name);
+                    if (ps.executeUpdate() != 1) {
+                        throw new SQLException("No id allocation for "
+                                + name);
+                    }
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT high_water FROM id_allocations "
+                        + "WHERE name = ?")) {
+                    ps.setString(1, name);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        high[0] = rs.getLong(1);
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+        return new Block(high[0] - blockSize + 1, high[0] + 1);
+    }
+
+    /**
+     * A reserved range of ids, from next up to but not including limit.
+     */
+    private static class Block {
+        private final AtomicLong next;
+        private final long limit;
+
+        /**
+         * Creates a block
+         * @param first the first id in the block
+         * @param limit one past the last id in the block
+         */
+        Block(long first, long limit) {
+            this.next = new AtomicLong(first);
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package fxapp;
+
+import model.Location;
+import model.Report;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * A k-d tree of reports for nearest-neighbour lookups.
+ *
+ * Locations are stored as points on the unit sphere in three dimensions
+ * rather than as latitude and longitude, so the tree has no seam at the
+ * antimeridian or the poles. The straight-line (chord) distance between
+ * two such points grows with the great-circle distance, so the nearest
+ * points by chord are the nearest by haversine too.
+ *
+ * One thread at a time may add reports, while any number of threads
+ * search without locking. A node is only linked into the tree once it
+ * is complete, so a search sees each report fully or not at all.
+ *
+ * @param <R> the kind of report indexed
+ */
+public class KdTree<R extends Report> {
+    private volatile Node<R> root;
+    private volatile int size;
+
+    /**
+     * Creates an empty tree
+     */
+    public KdTree() {
+    }
+
+    /**
+     * Creates a balanced tree of the reports by splitting on the median
+     * at each level
+     *
+     * @param reports the reports to index
+     */
+    public KdTree(List<? extends R> reports) {
+        List<Node<R>> nodes = new ArrayList<>(reports.size());
+        for (R r : reports) {
+            nodes.add(new Node<>(r));
+        }
+        root = build(nodes, 0, nodes.size(), 0);
+        size = nodes.size();
+    }
+
+    /**
+     * Adds a report below the leaf its point falls under. Trees built
+     * from reports arriving in random places stay close to balanced.
+     * A report level with a node on its axis may go either way, so
+     * reports at the same place are spread across both sides rather than
+     * stacked down one.
+     *
+     * @param report the report to add
+     */
+    public void add(R report) {
+        Node<R> node = new Node<>(report);
+        int n = size + 1;
+        size = n;
+        if (root == null) {
+            root = node;
+            return;
+        }
+        Node<R> parent = root;
+        int axis = 0;
+        int depth = 0;
+        while (true) {
+            double c = node.coord(axis);
+            double p = parent.coord(axis);
+            if (c < p || (c == p && ((n >>> depth) & 1) == 0)) {
+                if (parent.left == null) {
+                    parent.left = node;
+                    return;
+                }
+                parent = parent.left;
+            } else {
+                if (parent.right == null) {
+                    parent.right = node;
+                    return;
+                }
+                parent = parent.right;
+            }
+            axis = (axis + 1) % 3;
+            depth++;
+        }
+    }
+
+    /**
+     * Gets the number of reports in the tree
+     *
+     * @return the number of reports
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the reports closest to a location
+     *
+     * @param location where to search from
+     * @param k        most reports to return
+     * @param filter   reports it rejects are skipped, may be null
+     * @return up to k reports, nearest first
+     */
+    public List<R> nearest(Location location, int k,
+                           Predicate<? super R> filter) {
+        if (k <= 0 || root == null) {
+            return new ArrayList<>();
+        }
+        Node<R> target = new Node<>(location, null);
+        PriorityQueue<Candidate<R>> best = new PriorityQueue<>(k,
+                Comparator.comparingDouble((Candidate<R> c) -> c.dist2)
+                        .reversed());
+        search(root, 0, target, k, filter, best);
+        List<Candidate<R>> sorted = new ArrayList<>(best);
+        sorted.sort(Comparator.comparingDouble(c -> c.dist2));
+        List<R> result = new ArrayList<>(sorted.size());
+        for (Candidate<R> c : sorted) {
+            result.add(c.report);
+        }
+        return result;
+    }
+
+    /**
+     * Visits the subtree holding the target first, then the other side
+     * only if the splitting plane is closer than the k-th best so far.
+     * Nodes level with the plane may be on either side, which is safe
+     * since the far side is never nearer than the plane.
+     *
+     * @param node   subtree root
+     * @param axis   coordinate the node splits on
+     * @param target the point searched from
+     * @param k      number of reports wanted
+     * @param filter reports it rejects are skipped, may be null
+     * @param best   max-heap of the best k candidates found
+     */
+    private void search(Node<R> node, int axis, Node<R> target, int k,
+                        Predicate<? super R> filter,
+                        PriorityQueue<Candidate<R>> best) {
+        if (node == null) {
+            return;
+        }
+        if (filter == null || filter.test(node.report)) {
+            double d = node.dist2(target);
+            if (best.size() < k) {
+                best.add(new Candidate<>(node.report, d));
+            } else if (d < best.peek().dist2) {
+                best.poll();
+                best.add(new Candidate<>(node.report, d));
+            }
+        }
+        double diff = target.coord(axis) - node.coord(axis);
+        Node<R> near = (diff < 0) ? node.left : node.right;
+        Node<R> far = (diff < 0) ? node.right : node.left;
+        int next = (axis + 1) % 3;
+        search(near, next, target, k, filter, best);
+        if (far != null && (best.size() < k
+                || diff * diff < best.peek().dist2)) {
+            search(far, next, target, k, filter, best);
+        }
+    }
+
+    /**
+     * Builds a balanced subtree from a range of nodes. The median is the
+     * split even when its neighbours share its coordinate, so many
+     * reports at one place still give a tree of logarithmic depth. Only
+     * the median is put in place rather than sorting the range.
+     *
+     * @param nodes the nodes, reordered in place
+     * @param from  first index of the range
+     * @param to    one past the last index of the range
+     * @param axis  coordinate to split on at this level
+     * @return the subtree root, or null for an empty range
+     */
+    private Node<R> build(List<Node<R>> nodes, int from, int to, int axis) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        select(nodes, from, to, mid, axis);
+        Node<R> node = nodes.get(mid);
+        node.left = build(nodes, from, mid, (axis + 1) % 3);
+        node.right = build(nodes, mid + 1, to, (axis + 1) % 3);
+        return node;
+    }
+
+    /**
+     * Reorders a range of nodes so the one at an index is where sorting
+     * on an axis would put it, with none greater before it and none
+     * smaller after it
+     *
+     * @param nodes the nodes, reordered in place
+     * @param from  first index of the range
+     * @param to    one past the last index of the range
+     * @param k     the index to fill
+     * @param axis  coordinate to order by
+     * @param <R>   the kind of report
+     */
+    private static <R extends Report> void select(List<Node<R>> nodes,
+                                                  int from, int to, int k,
+                                                  int axis) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            double pivot = nodes.get((lo + hi) >>> 1).coord(axis);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (nodes.get(i).coord(axis) < pivot) {
+                    i++;
+                }
+                while (nodes.get(j).coord(axis) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    Collections.swap(nodes, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A report and its point on the unit sphere.
+     *
+     * @param <R> the kind of report
+     */
+    private static class Node<R extends Report> {
+        private final R report;
+        private final double x;
+        private final double y;
+        private final double z;
+        private volatile Node<R> left;
+        private volatile Node<R> right;
+
+        /**
+         * Creates a node for a report
+         * @param report the report
+         */
+        Node(R report) {
+            this(report.getLocation(), report);
+        }
+
+        /**
+         * Creates a node for a location
+         * @param location where the node is
+         * @param report   the report, or null for a search target
+         */
+        Node(Location location, R report) {
+            double lat = Math.toRadians(location.getLatitude());
+            double lon = Math.toRadians(location.getLongitude());
+            this.report = report;
+            this.x = Math.cos(lat) * Math.cos(lon);
+            this.y = Math.cos(lat) * Math.sin(lon);
+            this.z = Math.sin(lat);
+        }
+
+        /**
+         * Gets one coordinate
+         * @param axis 0, 1 or 2 for x, y or z
+         * @return the coordinate
+         */
+        double coord(int axis) {
+            return (axis == 0) ? x : (axis == 1) ? y : z;
+        }
+
+        /**
+         * Gets the squared chord distance to another node
+         * @param o the other node
+         * @return the squared distance
+         */
+        double dist2(Node<?> o) {
+            double dx = x - o.x;
+            double dy = y - o.y;
+            double dz = z - o.z;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    /**
+     * A report found during a search with its squared chord distance.
+     *
+     * @param <R> the kind of report
+     */
+    private static class Candidate<R> {
+        private final R report;
+        private final double dist2;
+
+        /**
+         * Creates a candidate
+         * @param report the report
+         * @param dist2  its squared distance from the target
+         */
+        Candidate(R report, double dist2) {
+            this.report = report;
+            this.dist2 = dist2;
+        }
+    }
+}
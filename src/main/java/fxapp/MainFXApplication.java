@@ -13,11 +13,15 @@ import controller.UserInfoScreenController;
 import controller.UserListScreenController;
 import controller.ViewReportsScreenController;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
+import model.GeoBox;
 import model.HistoricalData;
+import model.PurityReport;
 import model.Report;
 import model.SourceReport;
 import model.Token;
@@ -26,6 +30,11 @@ import model.User;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -49,7 +58,10 @@ public class MainFXApplication extends Application {
     private Scene sourceReportScene;
     private Scene mapScene;
     private Scene qualityReportScene;
-    private ReportManager reportManager;
+    private volatile ReportManager reportManager;
+    private CompletableFuture<ReportManager> reportsReady;
+    private final List<Runnable> waitingForReports = new ArrayList<>();
+    private Throwable reportsError;
     private ViewReportsScreenController viewReports;
     private DatabaseManager databaseManager;
 	private UserManager userManager;
@@ -69,18 +81,147 @@ public class MainFXApplication extends Application {
 
     /**
      * Called at start of application, initializes appropriate controllers.
+     *
+     * Startup is staged so the login screen shows as soon as it can: the
+     * database is opened and the users, which login needs, are loaded
+     * first; the two report tables then load side by side in the
+     * background while the user logs in. Screens that need reports wait
+     * for them through whenReportsReady.
+     *
      * @param primaryStage the FX stage of the application
      */
     public void start(Stage primaryStage) {
+        long started = System.nanoTime();
         try {
             this.databaseManager = new DatabaseManager();
-        } catch (ClassNotFoundException cne) {
-            cne.printStackTrace();
+        } catch (ClassNotFoundException | SQLException e) {
+            LOGGER.log(Level.SEVERE, "Could not open the database", e);
+            Platform.exit();
+            return;
         }
-        this.reportManager = new ReportManager(databaseManager);
+        logPhase("database opened", started);
+
+        long phase = System.nanoTime();
         this.userManager = new UserManager(databaseManager);
-        initRootLayout(primaryStage);
         User.registerDatabaseManager(databaseManager);
+        logPhase("users loaded", phase);
+
+        reportsReady = ReportManager.load(databaseManager);
+
+        phase = System.nanoTime();
+        initRootLayout(primaryStage);
+        logPhase("login screen shown", phase);
+
+        reportsReady.whenComplete((rm, e) -> Platform.runLater(() -> {
+            if (e != null) {
+                onReportsFailed(e);
+                return;
+            }
+            onReportsLoaded(rm);
+            logPhase("reports ready", started);
+        }));
+    }
+
+    /**
+     * Takes over the loaded report manager: starts its background writer
+     * and subscribes the report screens to its changes. Runs on the FX
+     * thread.
+     * @param rm the loaded report manager
+     */
+    private void onReportsLoaded(ReportManager rm) {
+        rm.enableWriteBehind(1024, 256,
+                new ReportWriter.DurabilityListener() {
+                    @Override
+                    public void reportsDurable(List<Report> reports) {
+                        LOGGER.fine("Stored " + reports.size() + " reports");
+                    }
+
+                    @Override
+                    public void reportsFailed(List<Report> reports,
+                                              Exception cause) {
+                        LOGGER.log(Level.SEVERE, "Could not store "
+                                + reports.size() + " reports", cause);
+                    }
+                });
+        rm.subscribe(viewReports::reportsChanged, Platform::runLater);
+        rm.subscribe(mapScreenController::reportsChanged, Platform::runLater);
+        rm.subscribe(histReportController::reportsChanged,
+                Platform::runLater);
+        this.reportManager = rm;
+        waitingForReports.forEach(Runnable::run);
+        waitingForReports.clear();
+    }
+
+    /**
+     * Gives up on the reports when they cannot be loaded: drops the
+     * actions waiting for them, goes back to the main screen if one was
+     * waiting and tells the user. Runs on the FX thread.
+     * @param e why the reports could not be loaded
+     */
+    private void onReportsFailed(Throwable e) {
+        reportsError = (e instanceof CompletionException
+                && e.getCause() != null) ? e.getCause() : e;
+        LOGGER.log(Level.SEVERE, "Could not load reports", reportsError);
+        if (!waitingForReports.isEmpty()) {
+            waitingForReports.clear();
+            setMainScene();
+        }
+        showReportsError();
+    }
+
+    /**
+     * Tells the user the reports could not be loaded
+     */
+    private void showReportsError() {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Cleanwater - Reports unavailable");
+        alert.setHeaderText("The water reports could not be loaded.");
+        alert.setContentText(reportsError.getMessage());
+        alert.show();
+    }
+
+    /**
+     * Runs an action that needs the reports, right away if they are
+     * loaded (or not being loaded at all) or once they are. If they
+     * failed to load, the user is told again instead. Called and run on
+     * the FX thread.
+     * @param action the action to run
+     */
+    private void whenReportsReady(Runnable action) {
+        if (reportManager != null || reportsReady == null) {
+            action.run();
+            return;
+        }
+        if (reportsError != null) {
+            showReportsError();
+            return;
+        }
+        activeScreen.setTitle("Cleanwater - Loading reports...");
+        waitingForReports.add(action);
+    }
+
+    /**
+     * Logs how long a startup phase took
+     * @param phase what finished
+     * @param startNanos when the phase began, from System.nanoTime
+     */
+    private static void logPhase(String phase, long startNanos) {
+        LOGGER.info(String.format("Startup: %s after %.1f ms", phase,
+                (System.nanoTime() - startNanos) / 1e6));
+    }
+
+    /**
+     * Called when the application exits, releases the database.
+     */
+    @Override
+    public void stop() {
+        ReportManager rm = reportManager;
+        if (rm != null) {
+            rm.close();
+        }
+        if (databaseManager != null) {
+            databaseManager.close();
+        }
     }
 
     /**
@@ -117,22 +258,27 @@ public class MainFXApplication extends Application {
      * Set scene to submit quality reports
      */
     public void setQualityReportScene() {
-        setScene(qualityReportScene, "Cleanwater - Submit quality report");
+        whenReportsReady(() -> setScene(qualityReportScene,
+                "Cleanwater - Submit quality report"));
     }
 
     /**
      * Set scene to source report controls
      */
     public void setSourceReportScene() {
-        setScene(sourceReportScene, "Cleanwater - Submit Source Report");
+        whenReportsReady(() -> setScene(sourceReportScene,
+                "Cleanwater - Submit Source Report"));
     }
 
     /**
      * Set scene to report view
      */
     public void setViewReportsScene() {
-        viewReports.setReportsList(reportManager.getSourceReports());
-        setScene(viewReportsScene, "Cleanwater - View Source Reports");
+        whenReportsReady(() -> {
+            viewReports.setReportsPages(SourceReport.class,
+                    reportManager::getSourceReportPage);
+            setScene(viewReportsScene, "Cleanwater - View Source Reports");
+        });
     }
 
     /**
@@ -149,8 +295,11 @@ public class MainFXApplication extends Application {
      * Set scene to view purity reports
      */
     public void setViewPurityScene() {
-        viewReports.setReportsList(reportManager.getPurityReports());
-        setScene(viewReportsScene, "Cleanwater - View Purity Reports");
+        whenReportsReady(() -> {
+            viewReports.setReportsPages(PurityReport.class,
+                    reportManager::getPurityReportPage);
+            setScene(viewReportsScene, "Cleanwater - View Purity Reports");
+        });
     }
 
     /**
@@ -161,22 +310,46 @@ public class MainFXApplication extends Application {
     }
 
     /**
-     * Sets scene to view historical graph
+     * Sets scene to view historical graph, or goes back to the data
+     * entry scene if the data cannot be graphed
      * @param d historical data to view graph of
      */
     public void setHistReportScene(HistoricalData d) {
-        histReportController.setData(d);
-        histReportController.setReportsList(reportManager.getPurityReports());
-        histReportController.setGraph();
-        setScene(histReportScene, "Graph of year " + d.getYear());
+        String error = d.validate();
+        if (error != null) {
+            LOGGER.warning("Cannot graph " + error);
+            setHistReportDataScene();
+            return;
+        }
+        whenReportsReady(() -> {
+            GeoBox box = d.getRegion();
+            PpmStats[] months;
+            try {
+                months = "Virus PPM".equals(d.getContaminantType())
+                        ? reportManager.monthlyVirusPPM(box, d.getYear())
+                        : reportManager.monthlyContaminantPPM(box,
+                                d.getYear());
+            } catch (PersistenceException e) {
+                LOGGER.log(Level.WARNING, "Cannot graph year "
+                        + d.getYear(), e);
+                setHistReportDataScene();
+                return;
+            }
+            histReportController.setData(d);
+            histReportController.setMonthlyStats(months);
+            histReportController.setGraph();
+            setScene(histReportScene, "Graph of year " + d.getYear());
+        });
     }
 
     /**
      * Set scene to water availability map
      */
     public void setMapScene() {
-        mapScreenController.refreshMarkers();
-        setScene(mapScene, "Cleanwater - Water Map");
+        whenReportsReady(() -> {
+            mapScreenController.refreshMarkers();
+            setScene(mapScene, "Cleanwater - Water Map");
+        });
     }
 
 
@@ -0,0 +1,107 @@
+package fxapp;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * One numbered step in the evolution of the database schema.
+ *
+ * The schema change itself runs in the startup transaction. A migration
+ * may also carry a backfill, which rewrites existing rows afterwards in
+ * small chunks, each in its own transaction, so writers are never locked
+ * out for long while a big table is converted.
+ */
+public class Migration {
+    private final int version;
+    private final String description;
+    private final Step step;
+    private final Backfill backfill;
+
+    /**
+     * Creates a migration with no backfill
+     *
+     * @param version     the schema version this migration produces
+     * @param description what the migration changes
+     * @param step        the schema change
+     */
+    public Migration(int version, String description, Step step) {
+        this(version, description, step, null);
+    }
+
+    /**
+     * Creates a migration
+     *
+     * @param version     the schema version this migration produces
+     * @param description what the migration changes
+     * @param step        the schema change
+     * @param backfill    rewrites existing rows after the change, may be
+     *                    null
+     */
+    public Migration(int version, String description, Step step,
+                     Backfill backfill) {
+        this.version = version;
+        this.description = description;
+        this.step = step;
+        this.backfill = backfill;
+    }
+
+    /**
+     * gets the schema version this migration produces
+     * @return the version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * gets what the migration changes
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * gets the schema change
+     * @return the step
+     */
+    public Step getStep() {
+        return step;
+    }
+
+    /**
+     * gets the chunked rewrite of existing rows
+     * @return the backfill, or null if there is none
+     */
+    public Backfill getBackfill() {
+        return backfill;
+    }
+
+    @FunctionalInterface
+    public interface Step {
+
+        /**
+         * Applies the schema change
+         *
+         * @param conn the writer connection, inside a transaction
+         * @throws SQLException exception
+         */
+        void apply(Connection conn) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface Backfill {
+
+        /**
+         * Rewrites the next chunk of rows
+         *
+         * @param conn       the writer connection, inside a transaction
+         * @param afterRowid the last rowid handled by the previous chunk
+         * @param chunkSize  the most rows to handle in this chunk
+         * @return the last rowid handled, or -1 once no rows are left
+         * @throws SQLException exception
+         */
+        long run(Connection conn, long afterRowid, int chunkSize)
+                throws SQLException;
+    }
+}
@@ -0,0 +1,112 @@
+package fxapp;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * One chunk of models from a keyset-paginated query, plus the token
+ * needed to fetch the chunk after it.
+ *
+ * @param <M> the model in the page
+ */
+public class Page<M> {
+    private final List<M> items;
+    private final Token next;
+
+    /**
+     * Creates a page
+     *
+     * @param items the models in this page, in order
+     * @param next  token for the following page, or null if this is the
+     *              last one
+     */
+    Page(List<M> items, Token next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    /**
+     * Gets the models in this page
+     * @return the models, in order
+     */
+    public List<M> getItems() {
+        return items;
+    }
+
+    /**
+     * Checks whether another page follows this one
+     * @return true if there are more models
+     */
+    public boolean hasMore() {
+        return next != null;
+    }
+
+    /**
+     * Gets the continuation token for the following page
+     * @return the token, or null if this is the last page
+     */
+    public Token getNextToken() {
+        return next;
+    }
+
+    /**
+     * Marks the position of the last row of a page: its value in the
+     * order column, with the rowid to break ties between equal values.
+     */
+    public static class Token {
+        private final String orderColumn;
+        private final Object key;
+        private final long rowid;
+
+        /**
+         * Creates a continuation token
+         *
+         * @param orderColumn the column the pages are ordered by
+         * @param key         the last row's value in that column
+         * @param rowid       the last row's rowid
+         */
+        Token(String orderColumn, Object key, long rowid) {
+            this.orderColumn = orderColumn;
+            this.key = key;
+            this.rowid = rowid;
+        }
+
+        /**
+         * gets the column the pages are ordered by
+         * @return order column name
+         */
+        public String getOrderColumn() {
+            return orderColumn;
+        }
+
+        /**
+         * gets the last row's value in the order column
+         * @return the key
+         */
+        public Object getKey() {
+            return key;
+        }
+
+        /**
+         * gets the last row's rowid
+         * @return the rowid
+         */
+        public long getRowid() {
+            return rowid;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Source<N> {
+
+        /**
+         * Fetches the page following the token
+         *
+         * @param after token from the previous page, or null for the first
+         * @param limit maximum number of models in the page
+         * @return the page
+         * @throws SQLException exception
+         */
+        Page<N> fetch(Token after, int limit) throws SQLException;
+    }
+}
@@ -0,0 +1,30 @@
+package fxapp;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when a database error happens somewhere that cannot throw
+ * SQLException, such as inside a stream of models.
+ */
+public class PersistenceException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Wraps a database error
+     *
+     * @param cause the underlying database error
+     */
+    public PersistenceException(SQLException cause) {
+        super(cause);
+    }
+
+    /**
+     * Gets the underlying database error
+     *
+     * @return the wrapped SQLException
+     */
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
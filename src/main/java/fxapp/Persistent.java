@@ -5,10 +5,21 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Handles storing and retrieving a specific type of model
@@ -16,11 +27,40 @@ import java.util.stream.Collectors;
  * @param <M> the model to store
  */
 public class Persistent<M> {
+    private static final int BATCH_SIZE = 500;
+
     private final String tableName;
     private final List<DataColumn> columns;
+    private final List<String> indexes = new ArrayList<>();
     private final DatabaseManager dbManager;
     private final Reviver<M> reviver;
+    private final RowCodec<M> codec;
     private final Class<M> type;
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private volatile int fetchSize = 500;
+
+    private DataColumn pkColumn;
+    private String insertSql;
+    private String deleteSql;
+    private String selectColumns;
+    private String fromClause;
+    private String selectAllSql;
+    private String joinedTable;
+    private String spatialTable;
+    private String latColumn;
+    private String lonColumn;
+    private String spatialInsertSql;
+    private String spatialDeleteSql;
+    private String withinSql;
+    private String joinCondition;
+    private final Map<String, String> updateSql = new ConcurrentHashMap<>();
+    private final Map<String, String> selectWhereSql =
+            new ConcurrentHashMap<>();
+    private final Map<String, String> firstPageSql = new ConcurrentHashMap<>();
+    private final Map<String, String> nextPageSql = new ConcurrentHashMap<>();
+    private final Map<String, String> nullPageSql = new ConcurrentHashMap<>();
+    private final Map<String, String> betweenSql = new ConcurrentHashMap<>();
 
     /**
      * Creates a new Persistent model
@@ -35,9 +75,28 @@ public class Persistent<M> {
                       String tableName, Reviver<M> reviver) {
         this.type = type;
         this.tableName = tableName;
-        columns = new LinkedList<>();
+        columns = new ArrayList<>();
         this.dbManager = dbManager;
         this.reviver = reviver;
+        this.codec = null;
+    }
+
+    /**
+     * Creates a new Persistent model read by column position
+     *
+     * @param type      the type to persist
+     * @param dbManager the database manager
+     * @param tableName the name of the table to link the model to
+     * @param codec     reads the POJO from a database row by position
+     */
+    public Persistent(Class<M> type, DatabaseManager dbManager,
+                      String tableName, RowCodec<M> codec) {
+        this.type = type;
+        this.tableName = tableName;
+        columns = new ArrayList<>();
+        this.dbManager = dbManager;
+        this.reviver = null;
+        this.codec = codec;
     }
 
     /**
@@ -58,32 +117,336 @@ public class Persistent<M> {
      */
     public void addColumn(String schema,
             Function<M, ?> property, boolean isUnique) {
-        columns.add(new DataColumn(schema, property, isUnique));
+        columns.add(new DataColumn(schema, property, isUnique,
+                (prep, index, model) -> prep.setObject(index,
+                        property == null ? null : property.apply(model))));
+    }
+
+    /**
+     * Adds an integer column that is bound without boxing on insert.
+     *
+     * @param schema   the SQL property's schema
+     * @param property a lambda that acts as a getter for the property
+     * @param isUnique whether the value can be used as an id
+     */
+    public void addIntegerColumn(String schema, ToLongFunction<M> property,
+                                 boolean isUnique) {
+        columns.add(new DataColumn(schema, property::applyAsLong, isUnique,
+                (prep, index, model) ->
+                        prep.setLong(index, property.applyAsLong(model))));
+    }
+
+    /**
+     * Adds an integer column that is bound without boxing on insert.
+     *
+     * @param schema   the SQL property's schema
+     * @param property a lambda that acts as a getter for the property
+     */
+    public void addIntegerColumn(String schema, ToLongFunction<M> property) {
+        addIntegerColumn(schema, property, false);
+    }
+
+    /**
+     * Adds a real column that is bound without boxing on insert.
+     *
+     * @param schema   the SQL property's schema
+     * @param property a lambda that acts as a getter for the property
+     */
+    public void addRealColumn(String schema, ToDoubleFunction<M> property) {
+        columns.add(new DataColumn(schema, property::applyAsDouble, false,
+                (prep, index, model) ->
+                        prep.setDouble(index, property.applyAsDouble(model))));
+    }
+
+    /**
+     * Declares a secondary index on the table, created by init() if it
+     * does not already exist.
+     *
+     * @param name    the index's name
+     * @param unique  whether the indexed values must be unique
+     * @param columns the columns to index, in order
+     */
+    public void addIndex(String name, boolean unique, String... columns) {
+        indexes.add("CREATE " + (unique ? "UNIQUE " : "")
+                + "INDEX IF NOT EXISTS " + name + " ON " + tableName
+                + " (" + String.join(", ", columns) + ");");
+    }
+
+    /**
+     * Declares a non-unique secondary index on the table, created by
+     * init() if it does not already exist.
+     *
+     * @param name    the index's name
+     * @param columns the columns to index, in order
+     */
+    public void addIndex(String name, String... columns) {
+        addIndex(name, false, columns);
+    }
+
+    /**
+     * Keeps an SQLite R*Tree over the table's coordinates, so bounding
+     * box queries only visit the matching rows. The tree is keyed by the
+     * table's unique integer column rather than the rowid, which VACUUM
+     * may renumber. init() creates it, store, update and delete keep it
+     * in sync, and rebuildSpatialIndex fills it for existing rows.
+     *
+     * @param latColumn the column holding latitude
+     * @param lonColumn the column holding longitude
+     */
+    public void addSpatialIndex(String latColumn, String lonColumn) {
+        this.spatialTable = tableName + "_rtree";
+        this.latColumn = latColumn;
+        this.lonColumn = lonColumn;
+    }
+
+    /**
+     * Sets how many rows the driver should fetch at a time when
+     * streaming models out of the table.
+     *
+     * @param fetchSize rows per fetch, or 0 for the driver's default
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Left joins another table into every query, so a reviver can build
+     * a model and the model it references from a single row instead of
+     * querying once per row.
+     *
+     * @param joinedTable the table to join
+     * @param condition   the SQL join condition
+     */
+    public void setJoin(String joinedTable, String condition) {
+        this.joinedTable = joinedTable;
+        this.joinCondition = condition;
     }
 
     /**
      * Creates the model's table from the given schema if
-     * one does not already exist.
+     * one does not already exist, and compiles the SQL used
+     * to store, update, delete and retrieve models.
      */
     public void init() {
-        try (Connection conn = dbManager.getConnection()) {
-            PreparedStatement checkTableExists
-                    = conn.prepareStatement("SELECT name FROM sqlite_master "
-                    + "WHERE type='table' AND name=(?);");
-            checkTableExists.setString(1, tableName);
-            ResultSet rs = checkTableExists.executeQuery();
-            if (!rs.next()) {
-                conn.createStatement().executeUpdate(
+        try {
+            dbManager.inTransaction(this::init);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Creates the model's table, indexes and spatial index if they do not
+     * already exist, as part of the caller's transaction, and compiles the
+     * SQL used to store, update, delete and retrieve models.
+     *
+     * @param conn the writer connection
+     * @throws SQLException if the table cannot be created
+     */
+    void init(Connection conn) throws SQLException {
+        compileStatements();
+        boolean exists = exists(conn);
+        try (Statement stmt = conn.createStatement()) {
+            if (!exists) {
+                stmt.executeUpdate(
                         "create table " + tableName + "("
                                 + getSQLStrings((DataColumn col)
                                     -> col.schema) + ");");
             }
-            checkTableExists.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
+            for (String index : indexes) {
+                stmt.executeUpdate(index);
+            }
+            if (spatialTable != null) {
+                stmt.executeUpdate("CREATE VIRTUAL TABLE IF NOT EXISTS "
+                        + spatialTable + " USING rtree(id, min_lat, "
+                        + "max_lat, min_lon, max_lon);");
+            }
+        }
+    }
+
+    /**
+     * Drops the spatial index and builds it again from every row of the
+     * table, as part of the caller's transaction. Rows sharing a key get
+     * one entry covering all of them. Does nothing if the table has no
+     * spatial index or does not exist yet.
+     *
+     * @param conn the writer connection
+     * @throws SQLException if the index cannot be rebuilt
+     */
+    void rebuildSpatialIndex(Connection conn) throws SQLException {
+        if (spatialTable == null || !exists(conn)) {
+            return;
+        }
+        compileStatements();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DROP TABLE IF EXISTS " + spatialTable);
+            stmt.executeUpdate("CREATE VIRTUAL TABLE " + spatialTable
+                    + " USING rtree(id, min_lat, max_lat, min_lon, max_lon);");
+            stmt.executeUpdate("INSERT INTO " + spatialTable + " "
+                    + spatialEntrySelect() + " WHERE " + pkColumn.name
+                    + " IS NOT NULL GROUP BY " + pkColumn.name);
         }
     }
 
+    /**
+     * Checks whether the model's table has been created.
+     *
+     * @param conn a connection to the database
+     * @return true if the table exists
+     * @throws SQLException exception
+     */
+    boolean exists(Connection conn) throws SQLException {
+        try (PreparedStatement checkTableExists
+                     = conn.prepareStatement("SELECT name FROM sqlite_master "
+                     + "WHERE type='table' AND name=(?);")) {
+            checkTableExists.setString(1, tableName);
+            try (ResultSet rs = checkTableExists.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Builds the SQL strings for this table once, so the hot paths
+     * only look them up.
+     */
+    private void compileStatements() {
+        pkColumn = columns.stream().filter(col -> col.isUnique)
+                .findFirst().orElse(null);
+        // columns are named, since a migrated table may have them in a
+        // different order than the schema declares
+        insertSql = "insert into " + tableName + " ("
+                + getSQLStrings((DataColumn col) -> col.name) + ") values ("
+                + getPlaceholders() + ");";
+        if (joinedTable == null) {
+            selectColumns = tableName + ".*";
+            fromClause = tableName;
+        } else {
+            selectColumns = tableName + ".*, " + joinedTable + ".*";
+            fromClause = tableName + " LEFT JOIN " + joinedTable
+                    + " ON " + joinCondition;
+        }
+        selectAllSql = "SELECT " + selectColumns + " FROM " + fromClause;
+        for (DataColumn col : columns) {
+            selectWhereSql.put(col.name, selectWhereSql(col.name));
+            if (pkColumn != null) {
+                updateSql.put(col.name, updateSql(col.name));
+            }
+        }
+        if (pkColumn != null) {
+            deleteSql = "DELETE FROM " + tableName
+                    + " WHERE " + pkColumn.name + "=(?)";
+        }
+        if (spatialTable != null) {
+            if (pkColumn == null) {
+                throw new IllegalStateException(tableName + " needs a unique "
+                        + "column to key its spatial index");
+            }
+            // rows sharing a key get one entry covering all of them, so
+            // the entry is recomputed from the table rather than inserted
+            spatialInsertSql = "INSERT OR REPLACE INTO " + spatialTable + " "
+                    + spatialEntrySelect() + " WHERE " + pkColumn.name
+                    + "=(?) GROUP BY " + pkColumn.name;
+            spatialDeleteSql = "DELETE FROM " + spatialTable
+                    + " WHERE id=(?)";
+            String lat = tableName + "." + latColumn;
+            String lon = tableName + "." + lonColumn;
+            // the tree stores 32-bit floats rounded outwards, so the exact
+            // columns are checked again after the tree narrows the rows
+            withinSql = "SELECT " + selectColumns + " FROM " + fromClause
+                    + " JOIN " + spatialTable + " ON " + tableName + "."
+                    + pkColumn.name + " = " + spatialTable + ".id WHERE "
+                    + spatialTable
+                    + ".max_lat >= (?) AND " + spatialTable + ".min_lat <= (?)"
+                    + " AND " + spatialTable + ".max_lon >= (?) AND "
+                    + spatialTable + ".min_lon <= (?)"
+                    + " AND " + lat + " BETWEEN (?) AND (?)"
+                    + " AND " + lon + " BETWEEN (?) AND (?)";
+        }
+    }
+
+    /**
+     * Builds the query turning the rows of a key into an R*Tree entry.
+     * @return the select list and FROM clause, to be grouped by the key
+     */
+    private String spatialEntrySelect() {
+        return "SELECT " + pkColumn.name + ", min(" + latColumn + "), max("
+                + latColumn + "), min(" + lonColumn + "), max(" + lonColumn
+                + ") FROM " + tableName;
+    }
+
+    /**
+     * Builds the SQL updating a single field by primary key.
+     * @param fieldName the column to update
+     * @return the update statement
+     */
+    private String updateSql(String fieldName) {
+        return "UPDATE " + tableName + " SET " + fieldName + "=(?)"
+                + " WHERE " + pkColumn.name + "=(?)";
+    }
+
+    /**
+     * Builds the SQL selecting every row matching a column's value.
+     * @param columnName the column to compare
+     * @return the select statement
+     */
+    private String selectWhereSql(String columnName) {
+        return selectAllSql + " WHERE " + tableName + "." + columnName
+                + "=(?)";
+    }
+
+    /**
+     * Gets a prepared statement from the connection's statement cache,
+     * counting whether it had to be prepared.
+     *
+     * @param conn a pooled connection
+     * @param sql  the statement's SQL
+     * @param autoGeneratedKeys a Statement generated keys flag
+     * @return the cached statement, which must not be closed
+     * @throws SQLException if the statement cannot be prepared
+     */
+    private PreparedStatement prepare(Connection conn, String sql,
+                                      int autoGeneratedKeys)
+            throws SQLException {
+        ConnectionPool.StatementCache cache =
+                (ConnectionPool.StatementCache) conn;
+        if (cache.hasCachedStatement(sql)) {
+            statementCacheHits.incrementAndGet();
+        } else {
+            statementCacheMisses.incrementAndGet();
+        }
+        return cache.cachedStatement(sql, autoGeneratedKeys);
+    }
+
+    /**
+     * Gets a prepared statement from the connection's statement cache.
+     *
+     * @param conn a pooled connection
+     * @param sql  the statement's SQL
+     * @return the cached statement, which must not be closed
+     * @throws SQLException if the statement cannot be prepared
+     */
+    private PreparedStatement prepare(Connection conn, String sql)
+            throws SQLException {
+        return prepare(conn, sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * Gets how often a statement was reused from a connection's cache.
+     * @return statement cache hits
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    /**
+     * Gets how often a statement had to be prepared on a connection.
+     * @return statement cache misses
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
     /**
      * Gets the generic type of the Persistence.
      *
@@ -93,6 +456,15 @@ public class Persistent<M> {
         return type;
     }
 
+    /**
+     * Gets the name of the table the models are stored in.
+     *
+     * @return the table name
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
     /**
      * Stores the model in the database.
      *
@@ -101,61 +473,370 @@ public class Persistent<M> {
      * @return Key of stored model
      */
     public int store(M model) throws SQLException {
-        try (Connection conn = dbManager.getConnection()) {
-
-            try (PreparedStatement prep
-                         = conn.prepareStatement("insert into "
-                    + tableName + " values ("
-                    + getPlaceholders() + ");", Statement
-                    .RETURN_GENERATED_KEYS)) {
-                int index = 1;
-                for (DataColumn column : columns) {
-                    if (column.property != null) {
-                        prep.setObject(index, column.property.apply(model));
-                    } else {
-                        prep.setObject(index, null);
-                    }
-                    index++;
-                }
+        int[] key = new int[1];
+        dbManager.inTransaction(conn -> key[0] = insertRow(conn, model));
+        return key[0];
+    }
+
+    /**
+     * Inserts one model, and its spatial index entry if the table has one.
+     *
+     * @param conn  the writer connection
+     * @param model the model to store
+     * @return key of the stored model, or -1 if none was generated
+     * @throws SQLException exception
+     */
+    private int insertRow(Connection conn, M model) throws SQLException {
+        PreparedStatement prep = prepare(conn, insertSql,
+                Statement.RETURN_GENERATED_KEYS);
+        bind(prep, model);
+        prep.executeUpdate();
+        int key;
+        try (ResultSet keys = prep.getGeneratedKeys()) {
+            key = keys.next() ? keys.getInt(1) : -1;
+        }
+        if (spatialInsertSql != null) {
+            updateSpatial(conn, pkColumn.property.apply(model));
+        }
+        return key;
+    }
+
+    /**
+     * Recomputes the spatial index entry of a key from its rows.
+     *
+     * @param conn the writer connection
+     * @param pk   the key whose rows changed
+     * @throws SQLException exception
+     */
+    private void updateSpatial(Connection conn, Object pk)
+            throws SQLException {
+        PreparedStatement spatial = prepare(conn, spatialInsertSql);
+        spatial.setObject(1, pk);
+        spatial.executeUpdate();
+    }
+
+    /**
+     * Checks whether changing a column moves rows in the spatial index.
+     * @param fieldName the column being changed
+     * @return true if the column is one of the indexed coordinates
+     */
+    private boolean isSpatialColumn(String fieldName) {
+        return spatialTable != null && (fieldName.equals(latColumn)
+                || fieldName.equals(lonColumn));
+    }
+
+    /**
+     * Stores many models in one transaction.
+     *
+     * SQLite only reports the last generated key of a batch, so rows are
+     * inserted one statement at a time; the single commit at the end is
+     * what saves the per-row journal sync.
+     *
+     * @param models the models to store
+     * @return the key of each stored model, in iteration order
+     * @throws SQLException if any model cannot be stored, in which case
+     *                      none are
+     */
+    public int[] storeAll(Collection<? extends M> models)
+            throws SQLException {
+        int[] keys = new int[models.size()];
+        dbManager.inTransaction(conn -> {
+            int i = 0;
+            for (M model : models) {
+                keys[i++] = insertRow(conn, model);
+            }
+        });
+        return keys;
+    }
+
+    /**
+     * Updates a single field of a stored model.
+     *
+     * @param model     the model to update, found by its unique column
+     * @param fieldName the column to change
+     * @param value     the new value
+     * @throws SQLException exception
+     */
+    public void update(M model, String fieldName, Object value)
+            throws SQLException {
+        dbManager.inTransaction(conn -> {
+            Object pk = pkColumn.property.apply(model);
+            PreparedStatement prep = prepare(conn,
+                    updateSql.computeIfAbsent(fieldName, this::updateSql));
+            prep.setObject(1, value);
+            prep.setObject(2, pk);
+            prep.executeUpdate();
+            if (isSpatialColumn(fieldName)) {
+                updateSpatial(conn, pk);
+            }
+        });
+    }
+
+    /**
+     * Sets a single field to the same value on many models, in one
+     * transaction.
+     *
+     * @param models    the models to update, found by their unique column
+     * @param fieldName the column to change
+     * @param value     the new value
+     * @throws SQLException if any model cannot be updated, in which case
+     *                      none are
+     */
+    public void updateAll(Collection<? extends M> models, String fieldName,
+                          Object value) throws SQLException {
+        dbManager.inTransaction(conn -> {
+            PreparedStatement prep = prepare(conn,
+                    updateSql.computeIfAbsent(fieldName, this::updateSql));
+            int pending = 0;
+            for (M model : models) {
+                prep.setObject(1, value);
+                prep.setObject(2, pkColumn.property.apply(model));
                 prep.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    prep.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
                 prep.executeBatch();
-                ResultSet keys = prep.getGeneratedKeys();
-                if (keys.next()) {
-                    return keys.getInt(1);
-                } else {
-                    return -1;
+            }
+            if (isSpatialColumn(fieldName)) {
+                for (M model : models) {
+                    updateSpatial(conn, pkColumn.property.apply(model));
                 }
             }
+        });
+    }
+
+    /**
+     * Deletes a stored model.
+     *
+     * @param model the model to delete, found by its unique column
+     * @throws SQLException exception
+     */
+    public void delete(M model) throws SQLException {
+        dbManager.inTransaction(conn -> {
+            Object pk = pkColumn.property.apply(model);
+            if (spatialDeleteSql != null) {
+                PreparedStatement spatial = prepare(conn, spatialDeleteSql);
+                spatial.setObject(1, pk);
+                spatial.executeUpdate();
+            }
+            PreparedStatement prep = prepare(conn, deleteSql);
+            prep.setObject(1, pk);
+            prep.executeUpdate();
+        });
+    }
+
+    /**
+     * Deletes many stored models in one transaction.
+     *
+     * @param models the models to delete, found by their unique column
+     * @throws SQLException if any model cannot be deleted, in which case
+     *                      none are
+     */
+    public void deleteAll(Collection<? extends M> models)
+            throws SQLException {
+        dbManager.inTransaction(conn -> {
+            PreparedStatement prep = prepare(conn, deleteSql);
+            PreparedStatement spatial = (spatialDeleteSql == null)
+                    ? null : prepare(conn, spatialDeleteSql);
+            int pending = 0;
+            for (M model : models) {
+                Object pk = pkColumn.property.apply(model);
+                if (spatial != null) {
+                    spatial.setObject(1, pk);
+                    spatial.addBatch();
+                }
+                prep.setObject(1, pk);
+                prep.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    executeDeletes(spatial, prep);
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                executeDeletes(spatial, prep);
+            }
+        });
+    }
+
+    /**
+     * Runs batched deletes of rows and their spatial index entries.
+     *
+     * @param spatial the batched spatial index deletes, or null
+     * @param prep    the batched row deletes
+     * @throws SQLException exception
+     */
+    private void executeDeletes(PreparedStatement spatial,
+                                PreparedStatement prep) throws SQLException {
+        if (spatial != null) {
+            spatial.executeBatch();
         }
+        prep.executeBatch();
     }
 
-    public void update(M model, String fieldName, Object value) throws SQLException {
-        try (Connection conn = dbManager.getConnection()) {
-            DataColumn pk = getPKColumn();
-            try (PreparedStatement prep = conn.prepareStatement("UPDATE "
-                        + tableName + " SET "
-                        + fieldName + "=(?)"
-                        + " WHERE " + fieldNameFromSchema(pk.schema) + "=(?)")) {
-                prep.setObject(1, value);
-                prep.setObject(2, pk.property.apply(model));
-                prep.execute();
-                        }
+    /**
+     * Retrieves every model whose coordinates fall inside the box, using
+     * the R*Tree declared with addSpatialIndex. A box whose lonMin is
+     * greater than its lonMax crosses the antimeridian, and is searched
+     * as the two boxes either side of it.
+     *
+     * @param latMin minimum latitude
+     * @param latMax maximum latitude
+     * @param lonMin minimum longitude
+     * @param lonMax maximum longitude
+     * @return the models inside the box
+     * @throws SQLException exception
+     */
+    public List<M> retrieveWithin(double latMin, double latMax,
+                                  double lonMin, double lonMax)
+            throws SQLException {
+        if (withinSql == null) {
+            throw new IllegalStateException(tableName
+                    + " has no spatial index");
+        }
+        try (Connection conn = dbManager.getReadConnection()) {
+            if (lonMin > lonMax) {
+                List<M> found = retrieveWithin(conn, latMin, latMax,
+                        lonMin, 180);
+                found.addAll(retrieveWithin(conn, latMin, latMax,
+                        -180, lonMax));
+                return found;
+            }
+            return retrieveWithin(conn, latMin, latMax, lonMin, lonMax);
         }
     }
 
-    public void delete(M model) throws SQLException {
-        try (Connection conn = dbManager.getConnection()) {
-            DataColumn pk = getPKColumn();
-            try (PreparedStatement prep = conn.prepareStatement(
-                        "DELETE FROM " + tableName 
-                        + " WHERE " + fieldNameFromSchema(pk.schema)
-                        + "=(?)")) {
-                prep.setObject(1, pk.property.apply(model));
-                prep.execute();
-                        }
+    /**
+     * Retrieves every model inside a box that does not cross the
+     * antimeridian.
+     *
+     * @param conn   a read connection
+     * @param latMin minimum latitude
+     * @param latMax maximum latitude
+     * @param lonMin minimum longitude
+     * @param lonMax maximum longitude
+     * @return the models inside the box
+     * @throws SQLException exception
+     */
+    private List<M> retrieveWithin(Connection conn, double latMin,
+                                   double latMax, double lonMin,
+                                   double lonMax) throws SQLException {
+        PreparedStatement prep = prepare(conn, withinSql);
+        prep.setDouble(1, latMin);
+        prep.setDouble(2, latMax);
+        prep.setDouble(3, lonMin);
+        prep.setDouble(4, lonMax);
+        prep.setDouble(5, latMin);
+        prep.setDouble(6, latMax);
+        prep.setDouble(7, lonMin);
+        prep.setDouble(8, lonMax);
+        return retrieveWithQuery(prep);
+    }
+
+    /**
+     * Retrieves every model whose value in a column falls in a range,
+     * ordered by that column. Declare an index on the column with
+     * addIndex so the range is found without reading the whole table.
+     *
+     * @param columnName the column to compare
+     * @param from       start of the range, inclusive
+     * @param to         end of the range, exclusive
+     * @return the models in the range, in column order
+     * @throws SQLException exception
+     */
+    public List<M> retrieveBetween(String columnName, Object from, Object to)
+            throws SQLException {
+        if (columns.stream().noneMatch(col -> col.name.equals(columnName))) {
+            throw new IllegalArgumentException("No column " + columnName
+                    + " in " + tableName);
+        }
+        try (Connection conn = dbManager.getReadConnection()) {
+            PreparedStatement prep = prepare(conn, betweenSql.computeIfAbsent(
+                    columnName, this::betweenSql));
+            prep.setObject(1, from);
+            prep.setObject(2, to);
+            prep.setFetchSize(fetchSize);
+            return retrieveWithQuery(prep);
+        }
+    }
+
+    /**
+     * Builds the SQL selecting the rows in a range of a column's values.
+     * @param columnName the column to compare
+     * @return the select statement
+     */
+    private String betweenSql(String columnName) {
+        String column = tableName + "." + columnName;
+        return selectAllSql + " WHERE " + column + " >= (?) AND " + column
+                + " < (?) ORDER BY " + column;
+    }
+
+    /**
+     * Retrieves the models matching a condition, in order, up to a limit.
+     * The condition and order are SQL over this table's columns with (?)
+     * placeholders for the parameters, so SQLite can pick an index for
+     * them. Each distinct query is prepared once per connection. The
+     * condition is pasted into the SQL as is, so only code in this
+     * package builds it, never user input.
+     *
+     * @param condition the WHERE condition
+     * @param order     the ORDER BY list, or null for any order
+     * @param limit     most models to return, or -1 for all of them
+     * @param params    the values of the condition's placeholders
+     * @return the matching models
+     * @throws SQLException exception
+     */
+    List<M> retrieveWhere(String condition, String order, int limit,
+                                 Object... params) throws SQLException {
+        try (Connection conn = dbManager.getReadConnection()) {
+            PreparedStatement prep = prepare(conn,
+                    whereSql(condition, order));
+            for (int i = 0; i < params.length; i++) {
+                prep.setObject(i + 1, params[i]);
+            }
+            prep.setInt(params.length + 1, limit);
+            prep.setFetchSize(fetchSize);
+            return retrieveWithQuery(prep);
         }
     }
 
+    /**
+     * Asks SQLite how it would run a retrieveWhere query.
+     *
+     * @param condition the WHERE condition
+     * @param order     the ORDER BY list, or null for any order
+     * @return one line per step of SQLite's query plan
+     * @throws SQLException exception
+     */
+    List<String> explainWhere(String condition, String order)
+            throws SQLException {
+        List<String> steps = new ArrayList<>();
+        try (Connection conn = dbManager.getReadConnection();
+             PreparedStatement prep = conn.prepareStatement(
+                     "EXPLAIN QUERY PLAN " + whereSql(condition, order));
+             ResultSet rs = prep.executeQuery()) {
+            int detail = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                steps.add(rs.getString(detail));
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Builds the SQL for a retrieveWhere query.
+     * @param condition the WHERE condition
+     * @param order     the ORDER BY list, or null for any order
+     * @return the select statement, ending in a LIMIT placeholder
+     */
+    private String whereSql(String condition, String order) {
+        return selectAllSql + " WHERE " + condition
+                + (order == null ? "" : " ORDER BY " + order)
+                + " LIMIT (?)";
+    }
+
     /**
      * Retrieves all models with the given data in the given column
      *
@@ -165,13 +846,13 @@ public class Persistent<M> {
      * @throws SQLException exception
      */
     private List<M> retrieve(String columnName, Object data)
-    throws SQLException {
-    try (Connection conn = dbManager.getConnection()) {
-        PreparedStatement prep = conn.prepareStatement("select * from "
-                + tableName + " WHERE " + columnName + "=(?)");
-        prep.setObject(1, data);
-        return retrieveWithQuery(prep);
-    }
+            throws SQLException {
+        try (Connection conn = dbManager.getReadConnection()) {
+            PreparedStatement prep = prepare(conn, selectWhereSql
+                    .computeIfAbsent(columnName, this::selectWhereSql));
+            prep.setObject(1, data);
+            return retrieveWithQuery(prep);
+        }
     }
 
     /**
@@ -198,11 +879,226 @@ public class Persistent<M> {
      * @throws SQLException exception
      */
     public List<M> retrieveAll() throws SQLException {
-        try (Connection conn = dbManager.getConnection()) {
-            PreparedStatement ps = conn
-                .prepareStatement("SELECT * FROM " + tableName);
-            return retrieveWithQuery(ps);
+        try (Connection conn = dbManager.getReadConnection()) {
+            return retrieveWithQuery(prepare(conn, selectAllSql));
+        }
+    }
+
+    /**
+     * Streams every model in the table straight from the database cursor,
+     * so only the current row is held in memory. The stream keeps a pooled
+     * connection until it is exhausted or closed, so use it in a
+     * try-with-resources block. Database errors while streaming are thrown
+     * as PersistenceException.
+     *
+     * @return a lazily revived stream of all models
+     * @throws SQLException if the query cannot be started
+     */
+    public Stream<M> streamAll() throws SQLException {
+        Connection conn = dbManager.getReadConnection();
+        try {
+            PreparedStatement prep = prepare(conn, selectAllSql);
+            prep.setFetchSize(fetchSize);
+            return streamRows(conn, prep.executeQuery());
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Calls the action on every model in the table, reading them from the
+     * database cursor one row at a time.
+     *
+     * @param action the action to run on each model
+     * @throws SQLException exception
+     */
+    public void forEach(Consumer<? super M> action) throws SQLException {
+        try (Connection conn = dbManager.getReadConnection()) {
+            PreparedStatement prep = prepare(conn, selectAllSql);
+            prep.setFetchSize(fetchSize);
+            try (ResultSet rs = prep.executeQuery()) {
+                Reviver<M> row = rowReader();
+                while (rs.next()) {
+                    action.accept(row.make(rs));
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves one page of models ordered by a column, starting after the
+     * position in the token. Each page is a fresh indexed range query, so
+     * walking a large table only ever holds one page in memory. Rows with
+     * a NULL key come first, as SQLite sorts them, ordered by rowid.
+     *
+     * @param orderColumn the column to order by, ties are broken by rowid
+     * @param after       token from the previous page, or null to start
+     * @param limit       maximum number of models in the page
+     * @return the page, with a token for the next one if there is more
+     * @throws SQLException exception
+     */
+    public Page<M> page(String orderColumn, Page.Token after, int limit)
+            throws SQLException {
+        if (!"rowid".equals(orderColumn) && columns.stream()
+                .noneMatch(col -> col.name.equals(orderColumn))) {
+            throw new IllegalArgumentException("No column " + orderColumn
+                    + " in " + tableName);
+        }
+        if (after != null && !after.getOrderColumn().equals(orderColumn)) {
+            throw new IllegalArgumentException("Token is for pages ordered by "
+                    + after.getOrderColumn());
+        }
+        try (Connection conn = dbManager.getReadConnection()) {
+            PreparedStatement prep;
+            if (after == null) {
+                prep = prepare(conn, firstPageSql.computeIfAbsent(orderColumn,
+                        col -> pageSql(col, null)));
+                prep.setInt(1, limit + 1);
+            } else if (after.getKey() == null) {
+                prep = prepare(conn, nullPageSql.computeIfAbsent(orderColumn,
+                        col -> pageSql(col, false)));
+                prep.setLong(1, after.getRowid());
+                prep.setInt(2, limit + 1);
+            } else {
+                prep = prepare(conn, nextPageSql.computeIfAbsent(orderColumn,
+                        col -> pageSql(col, true)));
+                prep.setObject(1, after.getKey());
+                prep.setObject(2, after.getKey());
+                prep.setLong(3, after.getRowid());
+                prep.setInt(4, limit + 1);
+            }
+            List<M> items = new ArrayList<>(limit);
+            Page.Token next = null;
+            Object lastKey = null;
+            long lastRowid = 0;
+            try (ResultSet rs = prep.executeQuery()) {
+                Reviver<M> row = rowReader();
+                while (rs.next()) {
+                    if (items.size() == limit) {
+                        next = new Page.Token(orderColumn, lastKey, lastRowid);
+                        break;
+                    }
+                    items.add(row.make(rs));
+                    lastKey = rs.getObject("page_key");
+                    lastRowid = rs.getLong("page_rowid");
+                }
+            }
+            return new Page<>(items, next);
+        }
+    }
+
+    /**
+     * Builds a keyset page query ordered by the column and rowid. After a
+     * key, the leading column >= term lets the index seek to the key
+     * rather than filter from its start. After a NULL key, the rest of
+     * the NULL rows come first, then every keyed row.
+     * @param orderColumn the column to order by
+     * @param keyed       true to start after a key, false to start after
+     *                    a NULL key, null to start at the beginning
+     * @return the page query
+     */
+    private String pageSql(String orderColumn, Boolean keyed) {
+        String column = tableName + "." + orderColumn;
+        String rowid = tableName + ".rowid";
+        String where = "";
+        if (keyed == Boolean.TRUE) {
+            where = " WHERE " + column + " >= (?) AND (" + column
+                    + " > (?) OR " + rowid + " > (?))";
+        } else if (keyed == Boolean.FALSE) {
+            where = " WHERE (" + column + " IS NULL AND " + rowid
+                    + " > (?)) OR " + column + " IS NOT NULL";
+        }
+        return "SELECT " + selectColumns + ", " + column + " AS page_key, "
+                + rowid + " AS page_rowid FROM " + fromClause + where
+                + " ORDER BY " + column + ", " + rowid + " LIMIT (?)";
+    }
+
+    /**
+     * Wraps an open result set in a stream that revives one row per
+     * element and releases the result set and connection once the rows
+     * run out or the stream is closed.
+     *
+     * @param conn the connection the query runs on
+     * @param rs   the open result set
+     * @return the stream of models
+     * @throws SQLException if the row columns cannot be resolved
+     */
+    private Stream<M> streamRows(Connection conn, ResultSet rs)
+            throws SQLException {
+        Reviver<M> row = rowReader();
+        Runnable release = () -> {
+            try {
+                try {
+                    rs.close();
+                } finally {
+                    conn.close();
+                }
+            } catch (SQLException e) {
+                throw new PersistenceException(e);
+            }
+        };
+        Spliterator<M> rows = new Spliterators.AbstractSpliterator<M>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super M> action) {
+                try {
+                    if (conn.isClosed() || !rs.next()) {
+                        release.run();
+                        return false;
+                    }
+                    action.accept(row.make(rs));
+                    return true;
+                } catch (SQLException e) {
+                    throw new PersistenceException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(release);
+    }
+
+    /**
+     * Sets each column's parameter from the model's properties.
+     * @param prep statement with one placeholder per column
+     * @param model the model to read properties from
+     * @throws SQLException if a parameter cannot be set
+     */
+    private void bind(PreparedStatement prep, M model) throws SQLException {
+        int index = 1;
+        for (DataColumn column : columns) {
+            column.binder.bind(prep, index, model);
+            index++;
+        }
+    }
+
+    /**
+     * Gets the reviver for the rows of a result set. A codec has its
+     * column positions looked up on the first row, once for the whole
+     * result set. SQLite reports an empty result set as closed, so they
+     * cannot be looked up before then.
+     *
+     * @return a reviver for each row of one result set
+     */
+    private Reviver<M> rowReader() {
+        if (codec == null) {
+            return reviver;
         }
+        return new Reviver<M>() {
+            private int[] ordinals;
+
+            @Override
+            public M make(ResultSet row) throws SQLException {
+                if (ordinals == null) {
+                    String[] names = codec.columns();
+                    int[] found = new int[names.length];
+                    for (int i = 0; i < names.length; i++) {
+                        found[i] = row.findColumn(names[i]);
+                    }
+                    ordinals = found;
+                }
+                return codec.read(row, ordinals);
+            }
+        };
     }
 
     /**
@@ -232,39 +1128,55 @@ public class Persistent<M> {
      */
     private List<M> retrieveWithQuery(PreparedStatement statement)
         throws SQLException {
-        ResultSet model = statement.executeQuery();
-        List<M> resultant = new LinkedList<>();
-        while (model.next()) {
-            resultant.add(reviver.make(model));
+        try (ResultSet model = statement.executeQuery()) {
+            List<M> resultant = new ArrayList<>();
+            Reviver<M> row = rowReader();
+            while (model.next()) {
+                resultant.add(row.make(model));
+            }
+            return resultant;
         }
-        return resultant;
     }
 
-    private String fieldNameFromSchema(String schema) {
-        return schema.split(" ")[0];
-    }
-    private DataColumn getPKColumn() {
-        return columns.stream().filter(col -> col.isUnique)
-            .findFirst().get();
-    }
     private class DataColumn {
+        private final String name;
         private final String schema;
         private final Function<? super M, ?> property;
         private final boolean isUnique;
+        private final Binder<M> binder;
 
         /**
          * Initializes the data column
          * @param schema SQL schema to use
          * @param property function to retrieve data to store.
+         * @param isUnique whether the value can be used as an id
+         * @param binder sets the column's insert parameter from a model
          */
         public DataColumn(String schema, Function<? super M, ?> property,
-                boolean isUnique) {
+                boolean isUnique, Binder<M> binder) {
+            this.name = schema.split(" ")[0];
             this.schema = schema;
             this.property = property;
             this.isUnique = isUnique;
+            this.binder = binder;
         }
     }
 
+    @FunctionalInterface
+    private interface Binder<N> {
+
+        /**
+         * Sets a statement parameter from a model's property
+         *
+         * @param prep  the statement
+         * @param index the parameter's position
+         * @param model the model to read the property from
+         * @throws SQLException exception
+         */
+        void bind(PreparedStatement prep, int index, N model)
+                throws SQLException;
+    }
+
     @FunctionalInterface
     public interface Reviver<N> {
 
@@ -0,0 +1,88 @@
+package fxapp;
+
+/**
+ * A point-in-time snapshot of the connection pool's usage.
+ */
+public class PoolMetrics {
+    private final int active;
+    private final int idle;
+    private final long acquisitions;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+
+    /**
+     * Creates a snapshot of the pool's counters
+     *
+     * @param active         connections currently leased out
+     * @param idle           open connections waiting in the pool
+     * @param acquisitions   connections handed out since startup
+     * @param totalWaitNanos time callers spent waiting for a connection
+     * @param maxWaitNanos   longest single wait for a connection
+     */
+    PoolMetrics(int active, int idle, long acquisitions,
+                long totalWaitNanos, long maxWaitNanos) {
+        this.active = active;
+        this.idle = idle;
+        this.acquisitions = acquisitions;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    /**
+     * gets the number of connections currently leased out
+     * @return active connections
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * gets the number of open connections waiting in the pool
+     * @return idle connections
+     */
+    public int getIdle() {
+        return idle;
+    }
+
+    /**
+     * gets the number of connections handed out since startup
+     * @return connection acquisitions
+     */
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    /**
+     * gets the total time callers have waited for a connection
+     * @return total wait in milliseconds
+     */
+    public double getTotalWaitMillis() {
+        return totalWaitNanos / 1e6;
+    }
+
+    /**
+     * gets the average time a caller waited for a connection
+     * @return average wait in milliseconds
+     */
+    public double getAverageWaitMillis() {
+        return acquisitions == 0 ? 0 : totalWaitNanos / 1e6 / acquisitions;
+    }
+
+    /**
+     * gets the longest time a caller waited for a connection
+     * @return longest wait in milliseconds
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos / 1e6;
+    }
+
+    /**
+     * converts metrics to string
+     * @return generated string
+     */
+    public String toString() {
+        return String.format("active=%d idle=%d acquisitions=%d "
+                + "avgWait=%.3fms maxWait=%.3fms", active, idle,
+                acquisitions, getAverageWaitMillis(), getMaxWaitMillis());
+    }
+}
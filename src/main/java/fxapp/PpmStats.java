@@ -0,0 +1,101 @@
+package fxapp;
+
+/**
+ * Running count, sum, minimum, maximum and sum of squares of PPM
+ * readings, enough to give the mean and variance without keeping the
+ * readings themselves.
+ */
+public class PpmStats {
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double sumSq;
+
+    /**
+     * Adds one reading
+     *
+     * @param ppm the reading in parts per million
+     */
+    public void add(double ppm) {
+        count++;
+        sum += ppm;
+        sumSq += ppm * ppm;
+        min = Math.min(min, ppm);
+        max = Math.max(max, ppm);
+    }
+
+    /**
+     * Adds every reading summarized by other stats
+     *
+     * @param other the stats to fold in
+     */
+    public void merge(PpmStats other) {
+        count += other.count;
+        sum += other.sum;
+        sumSq += other.sumSq;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * gets number of readings
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * gets sum of readings
+     * @return the sum
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * gets average reading
+     * @return the mean, or NaN with no readings
+     */
+    public double getMean() {
+        return (count == 0) ? Double.NaN : sum / count;
+    }
+
+    /**
+     * gets lowest reading
+     * @return the minimum, or positive infinity with no readings
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * gets highest reading
+     * @return the maximum, or negative infinity with no readings
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * gets population variance of the readings
+     * @return the variance, or NaN with no readings
+     */
+    public double getVariance() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double mean = sum / count;
+        return Math.max(0, sumSq / count - mean * mean);
+    }
+
+    /**
+     * converts stats to string
+     * @return generated string
+     */
+    public String toString() {
+        return String.format("n=%d mean=%s min=%s max=%s", count, getMean(),
+                min, max);
+    }
+}
@@ -0,0 +1,137 @@
+package fxapp;
+
+import model.PurityReport;
+
+import java.util.Arrays;
+
+/**
+ * The readings PurityRollups works from, stored column by column in
+ * primitive arrays, so checking the reports of a cell reads memory in
+ * order instead of following a report, its location and its date around
+ * the heap. Only the fields the rollups read are kept.
+ *
+ * Rows are numbered in the order reports are added.
+ *
+ * One thread at a time may add rows, while any number of threads read
+ * without locking. A row is written before the size is raised past it
+ * and grown arrays are published whole, so a reader sees every row below
+ * the size it read.
+ */
+public class PurityColumns {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private volatile Storage columns = new Storage(INITIAL_CAPACITY);
+    private volatile int size;
+
+    /**
+     * Appends a report as a new row
+     *
+     * @param report the report to add
+     * @return the report's row number
+     */
+    public int add(PurityReport report) {
+        int row = size;
+        Storage c = columns;
+        if (row == c.times.length) {
+            c = new Storage(c, row * 2);
+            columns = c;
+        }
+        c.latitudes[row] = report.getLocation().getLatitude();
+        c.longitudes[row] = report.getLocation().getLongitude();
+        c.virusPPMs[row] = report.getVirusPPM();
+        c.contaminantPPMs[row] = report.getContaminantPPM();
+        c.times[row] = report.getCreationDatetime().getTime();
+        size = row + 1;
+        return row;
+    }
+
+    /**
+     * Gets the number of rows
+     *
+     * @return the number of reports stored
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * gets a row's latitude
+     * @param row the row number
+     * @return the latitude
+     */
+    public double latitude(int row) {
+        return columns.latitudes[row];
+    }
+
+    /**
+     * gets a row's longitude
+     * @param row the row number
+     * @return the longitude
+     */
+    public double longitude(int row) {
+        return columns.longitudes[row];
+    }
+
+    /**
+     * gets a row's virus PPM
+     * @param row the row number
+     * @return parts per million of virus
+     */
+    public double virusPPM(int row) {
+        return columns.virusPPMs[row];
+    }
+
+    /**
+     * gets a row's contaminant PPM
+     * @param row the row number
+     * @return parts per million of contaminants
+     */
+    public double contaminantPPM(int row) {
+        return columns.contaminantPPMs[row];
+    }
+
+    /**
+     * gets a row's creation time
+     * @param row the row number
+     * @return creation time in epoch milliseconds
+     */
+    public long time(int row) {
+        return columns.times[row];
+    }
+
+    /**
+     * The column arrays, replaced whole when they fill up.
+     */
+    private static class Storage {
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final double[] virusPPMs;
+        private final double[] contaminantPPMs;
+        private final long[] times;
+
+        /**
+         * Creates empty columns
+         * @param capacity rows each column holds
+         */
+        Storage(int capacity) {
+            latitudes = new double[capacity];
+            longitudes = new double[capacity];
+            virusPPMs = new double[capacity];
+            contaminantPPMs = new double[capacity];
+            times = new long[capacity];
+        }
+
+        /**
+         * Creates larger columns holding a copy of smaller ones
+         * @param old      the columns to copy
+         * @param capacity rows each column holds
+         */
+        Storage(Storage old, int capacity) {
+            latitudes = Arrays.copyOf(old.latitudes, capacity);
+            longitudes = Arrays.copyOf(old.longitudes, capacity);
+            virusPPMs = Arrays.copyOf(old.virusPPMs, capacity);
+            contaminantPPMs = Arrays.copyOf(old.contaminantPPMs, capacity);
+            times = Arrays.copyOf(old.times, capacity);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package fxapp;
+
+import model.Location;
+import model.PurityReport;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+
+/**
+ * Reads purity reports from the purity_reports table by column position.
+ */
+public class PurityReportCodec implements RowCodec<PurityReport> {
+    private static final String[] COLUMNS = {"id", "latitude", "longitude",
+        "virus_ppm", "contaminant_ppm", "water_condition_id", "datetime",
+        "water_condition"};
+
+    @Override
+    public String[] columns() {
+        return COLUMNS;
+    }
+
+    @Override
+    public PurityReport read(ResultSet row, int[] ordinals)
+            throws SQLException {
+        return new PurityReport(
+                row.getInt(ordinals[0]),
+                new Location(row.getDouble(ordinals[1]),
+                        row.getDouble(ordinals[2])),
+                row.getDouble(ordinals[3]),
+                row.getDouble(ordinals[4]),
+                SourceReportCodec.term(row, ordinals[5], ordinals[7]),
+                new Date(row.getLong(ordinals[6])));
+    }
+}
@@ -0,0 +1,251 @@
+package fxapp;
+
+import model.GeoBox;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Monthly PPM summaries of purity reports per grid cell, kept up to date
+ * as reports are added.
+ *
+ * A region query adds up the summaries of the cells wholly inside the
+ * region. Cells the region only partly covers have their reports for
+ * the year checked one by one, so the result is exact while the work
+ * grows with the number of cells touched rather than with the number of
+ * reports. Reports are read from a PurityColumns store by row number.
+ */
+public class PurityRollups {
+    private static final int MONTHS = 12;
+
+    private final double cellDegrees;
+    private final int rows;
+    private final int cols;
+    private final PurityColumns columns;
+    private final Map<Integer, Map<Integer, Month[]>> years = new HashMap<>();
+    private final Calendar calendar = Calendar.getInstance();
+
+    /**
+     * Creates empty rollups
+     *
+     * @param cellDegrees width and height of each cell in degrees
+     * @param columns     the store holding the reports' rows
+     */
+    public PurityRollups(double cellDegrees, PurityColumns columns) {
+        this.cellDegrees = cellDegrees;
+        this.columns = columns;
+        this.rows = (int) Math.ceil(180 / cellDegrees);
+        this.cols = (int) Math.ceil(360 / cellDegrees);
+    }
+
+    /**
+     * Adds a report to its cell's summary for the report's month
+     *
+     * @param row the report's row in the column store
+     */
+    public void add(int row) {
+        int cell = row(columns.latitude(row)) * cols
+                + col(columns.longitude(row));
+        calendar.setTimeInMillis(columns.time(row));
+        Month[] months = years
+                .computeIfAbsent(calendar.get(Calendar.YEAR),
+                        y -> new HashMap<>())
+                .computeIfAbsent(cell, c -> new Month[MONTHS]);
+        int m = calendar.get(Calendar.MONTH);
+        if (months[m] == null) {
+            months[m] = new Month();
+        }
+        months[m].add(row);
+    }
+
+    /**
+     * Summarizes the virus readings of a region for each month of a year
+     *
+     * @param box  the region
+     * @param year the year
+     * @return twelve summaries, January first
+     */
+    public PpmStats[] monthlyVirus(GeoBox box, int year) {
+        return monthly(box, year, true);
+    }
+
+    /**
+     * Summarizes the contaminant readings of a region for each month of
+     * a year
+     *
+     * @param box  the region
+     * @param year the year
+     * @return twelve summaries, January first
+     */
+    public PpmStats[] monthlyContaminant(GeoBox box, int year) {
+        return monthly(box, year, false);
+    }
+
+    /**
+     * Adds up the summaries of the cells the box touches. When the box
+     * covers more cells than have reports that year, walks the occupied
+     * cells instead.
+     *
+     * @param box   the region
+     * @param year  the year
+     * @param virus true for virus readings, false for contaminant
+     * @return twelve summaries, January first
+     */
+    private PpmStats[] monthly(GeoBox box, int year, boolean virus) {
+        PpmStats[] result = new PpmStats[MONTHS];
+        for (int m = 0; m < MONTHS; m++) {
+            result[m] = new PpmStats();
+        }
+        Map<Integer, Month[]> cells = years.get(year);
+        if (cells == null) {
+            return result;
+        }
+        int rowMin = row(box.getLatMin());
+        int rowMax = row(box.getLatMax());
+        int colMin = col(box.getLonMin());
+        int colMax = col(box.getLonMax());
+        boolean wraps = box.crossesAntimeridian();
+        long width = wraps ? Math.min(cols, cols - colMin + colMax + 1)
+                : colMax - colMin + 1;
+        if ((rowMax - rowMin + 1) * width > cells.size()) {
+            for (Map.Entry<Integer, Month[]> e : cells.entrySet()) {
+                int row = e.getKey() / cols;
+                int col = e.getKey() % cols;
+                boolean inCols = wraps ? (col >= colMin || col <= colMax)
+                        : (col >= colMin && col <= colMax);
+                if (row >= rowMin && row <= rowMax && inCols) {
+                    addCell(box, row, col, e.getValue(), virus, result);
+                }
+            }
+            return result;
+        }
+        for (int row = rowMin; row <= rowMax; row++) {
+            for (long i = 0; i < width; i++) {
+                int col = (int) ((colMin + i) % cols);
+                Month[] months = cells.get(row * cols + col);
+                if (months != null) {
+                    addCell(box, row, col, months, virus, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds one cell to the result: its summaries if the box holds the
+     * whole cell, otherwise those of its reports the box holds.
+     *
+     * @param box    the region
+     * @param row    the cell's row
+     * @param col    the cell's column
+     * @param months the cell's monthly summaries
+     * @param virus  true for virus readings, false for contaminant
+     * @param result the monthly totals to add to
+     */
+    private void addCell(GeoBox box, int row, int col, Month[] months,
+                         boolean virus, PpmStats[] result) {
+        boolean whole = covers(box, row, col);
+        for (int m = 0; m < MONTHS; m++) {
+            Month month = months[m];
+            if (month == null) {
+                continue;
+            }
+            if (whole) {
+                result[m].merge(virus ? month.virus : month.contaminant);
+                continue;
+            }
+            for (int i = 0; i < month.size; i++) {
+                int r = month.rows[i];
+                if (contains(box, r)) {
+                    result[m].add(virus ? columns.virusPPM(r)
+                            : columns.contaminantPPM(r));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether a box holds every point of a cell
+     * @param box the region
+     * @param row the cell's row
+     * @param col the cell's column
+     * @return true if the cell lies wholly inside the box
+     */
+    private boolean covers(GeoBox box, int row, int col) {
+        double south = row * cellDegrees - 90;
+        double north = Math.min(90, south + cellDegrees);
+        double west = col * cellDegrees - 180;
+        double east = Math.min(180, west + cellDegrees);
+        if (south < box.getLatMin() || north > box.getLatMax()) {
+            return false;
+        }
+        if (box.crossesAntimeridian()) {
+            return west >= box.getLonMin() || east <= box.getLonMax();
+        }
+        return west >= box.getLonMin() && east <= box.getLonMax();
+    }
+
+    /**
+     * Checks whether a report's location is inside a box, edges included
+     * @param box the region
+     * @param row the report's row in the column store
+     * @return true if the box contains the report
+     */
+    private boolean contains(GeoBox box, int row) {
+        double lat = columns.latitude(row);
+        double lon = columns.longitude(row);
+        if (lat < box.getLatMin() || lat > box.getLatMax()) {
+            return false;
+        }
+        if (box.crossesAntimeridian()) {
+            return lon >= box.getLonMin() || lon <= box.getLonMax();
+        }
+        return lon >= box.getLonMin() && lon <= box.getLonMax();
+    }
+
+    /**
+     * Gets the row for a latitude, the north pole falls in the last row
+     * @param lat the latitude
+     * @return the row index
+     */
+    private int row(double lat) {
+        int row = (int) Math.floor((lat + 90) / cellDegrees);
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    /**
+     * Gets the column for a longitude, 180 falls in the last column
+     * @param lon the longitude
+     * @return the column index
+     */
+    private int col(double lon) {
+        int col = (int) Math.floor((lon + 180) / cellDegrees);
+        return Math.max(0, Math.min(cols - 1, col));
+    }
+
+    /**
+     * The reports of one cell in one month, as rows in the column store,
+     * and their summaries.
+     */
+    private class Month {
+        private final PpmStats virus = new PpmStats();
+        private final PpmStats contaminant = new PpmStats();
+        private int[] rows = new int[4];
+        private int size;
+
+        /**
+         * Adds a report to the month
+         * @param row the report's row in the column store
+         */
+        void add(int row) {
+            virus.add(columns.virusPPM(row));
+            contaminant.add(columns.contaminantPPM(row));
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+    }
+}
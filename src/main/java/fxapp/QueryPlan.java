@@ -0,0 +1,196 @@
+package fxapp;
+
+import model.Report;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * How the ReportManager runs a ReportQuery: which in-memory index reads
+ * the hot tier, and which SQL reads the cold tier. Every candidate an
+ * index returns is checked against the whole query afterwards.
+ */
+public class QueryPlan {
+    private final Access access;
+    private final long estimatedRows;
+    private final List<SqlStep> sqlSteps;
+    private final List<String> details = new ArrayList<>();
+
+    /**
+     * Creates a plan
+     *
+     * @param access        the index that reads the hot tier
+     * @param estimatedRows hot candidates the index is expected to return
+     * @param sqlSteps      the queries that read the cold tier
+     */
+    QueryPlan(Access access, long estimatedRows, List<SqlStep> sqlSteps) {
+        this.access = access;
+        this.estimatedRows = estimatedRows;
+        this.sqlSteps = sqlSteps;
+    }
+
+    /**
+     * gets the index that reads the hot tier
+     * @return the access path
+     */
+    public Access getAccess() {
+        return access;
+    }
+
+    /**
+     * gets how many hot candidates the index is expected to return
+     * @return the estimate
+     */
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    /**
+     * gets the queries that read the cold tier
+     * @return the SQL steps, empty if the cold tier is not read
+     */
+    public List<SqlStep> getSqlSteps() {
+        return Collections.unmodifiableList(sqlSteps);
+    }
+
+    /**
+     * gets what SQLite reported it would do for the SQL steps
+     * @return one line per step of SQLite's query plans
+     */
+    public List<String> getDetails() {
+        return Collections.unmodifiableList(details);
+    }
+
+    /**
+     * Adds a line of SQLite's query plan
+     * @param detail the line
+     */
+    void addDetail(String detail) {
+        details.add(detail);
+    }
+
+    /**
+     * converts plan to string
+     * @return generated string
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder("hot: ").append(access);
+        if (access != Access.NONE) {
+            sb.append(" (~").append(estimatedRows).append(" candidates)");
+        }
+        for (SqlStep step : sqlSteps) {
+            sb.append("\ncold: ").append(step);
+        }
+        for (String detail : details) {
+            sb.append("\n  sqlite: ").append(detail);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The ways a query can read the hot tier
+     */
+    public enum Access {
+        /**
+         * The query only covers the cold tier
+         */
+        NONE,
+        /**
+         * Nearest-neighbour search of the k-d tree, which also widens
+         * a circle over the cold tier
+         */
+        KD_TREE,
+        /**
+         * The grid cells the query's box touches
+         */
+        SPATIAL_GRID,
+        /**
+         * The query's time range of the time index
+         */
+        TIME_INDEX,
+        /**
+         * Every hot report of the query's type
+         */
+        SCAN
+    }
+
+    /**
+     * One SQL query over a report table for the cold tier
+     */
+    public static class SqlStep {
+        private final Class<? extends Report> type;
+        private final String condition;
+        private final String order;
+        private final int limit;
+        private final Object[] params;
+
+        /**
+         * Creates a step
+         *
+         * @param type      the report type, which picks the table
+         * @param condition the WHERE condition
+         * @param order     the ORDER BY list, or null for any order
+         * @param limit     most rows, or -1 for all
+         * @param params    the values of the condition's placeholders
+         */
+        SqlStep(Class<? extends Report> type, String condition,
+                String order, int limit, Object[] params) {
+            this.type = type;
+            this.condition = condition;
+            this.order = order;
+            this.limit = limit;
+            this.params = params;
+        }
+
+        /**
+         * gets the report type read
+         * @return the type
+         */
+        public Class<? extends Report> getType() {
+            return type;
+        }
+
+        /**
+         * gets the WHERE condition
+         * @return the condition
+         */
+        public String getCondition() {
+            return condition;
+        }
+
+        /**
+         * gets the ORDER BY list
+         * @return the order, or null for any order
+         */
+        public String getOrder() {
+            return order;
+        }
+
+        /**
+         * gets the most rows read
+         * @return the limit, or -1 for all
+         */
+        public int getLimit() {
+            return limit;
+        }
+
+        /**
+         * gets the values of the condition's placeholders
+         * @return the parameters
+         */
+        Object[] getParams() {
+            return params;
+        }
+
+        /**
+         * converts step to string
+         * @return generated string
+         */
+        public String toString() {
+            return type.getSimpleName() + " WHERE " + condition
+                    + (order == null ? "" : " ORDER BY " + order)
+                    + (limit < 0 ? "" : " LIMIT " + limit);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package fxapp;
+
+import model.Report;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size-bounded cache of the reports most recently read from the cold
+ * tier, evicting the least recently touched one when full. Each report
+ * read from the database is passed through intern, so while a report is
+ * cached every query hands back the same instance (screens key their
+ * markers and rows by identity) and the copy just read is dropped.
+ *
+ * @param <R> the report type
+ */
+public class ReportCache<R extends Report> {
+    private final int capacity;
+    private final Map<Integer, R> reports;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates an empty cache
+     *
+     * @param capacity most reports kept, 0 to keep none
+     */
+    public ReportCache(int capacity) {
+        this.capacity = capacity;
+        this.reports = new ReportLru<>(capacity);
+    }
+
+    /**
+     * Gets the cached instance of a report just read, caching the report
+     * if it is not there yet
+     *
+     * @param report a report read from the database
+     * @return the cached instance with the same number
+     */
+    public synchronized R intern(R report) {
+        R cached = reports.get(report.getReportNum());
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        if (capacity > 0) {
+            reports.put(report.getReportNum(), report);
+        }
+        return report;
+    }
+
+    /**
+     * Gets the number of reports cached
+     *
+     * @return the cache size
+     */
+    public synchronized int size() {
+        return reports.size();
+    }
+
+    /**
+     * gets how many reports read were already cached
+     * @return cache hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * gets how many reports read were not cached
+     * @return cache misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Reports by number in least recently used order, dropping the least
+     * recently used once over capacity.
+     *
+     * @param <R> the report type
+     */
+    private static class ReportLru<R> extends LinkedHashMap<Integer, R> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        /**
+         * Creates an empty map
+         * @param capacity most reports kept
+         */
+        ReportLru(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, R> e) {
+            return size() > capacity;
+        }
+    }
+}
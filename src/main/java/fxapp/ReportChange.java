@@ -0,0 +1,38 @@
+package fxapp;
+
+import model.Report;
+
+import java.util.List;
+
+/**
+ * A batch of reports added to a ReportManager. Reports are never removed
+ * from a manager, so a change only holds additions.
+ */
+public class ReportChange {
+    private final List<Report> added;
+
+    /**
+     * Creates a change
+     *
+     * @param added reports added since the last change, oldest first
+     */
+    ReportChange(List<Report> added) {
+        this.added = added;
+    }
+
+    /**
+     * gets reports added since the last change
+     * @return the added reports, oldest first
+     */
+    public List<Report> getAdded() {
+        return added;
+    }
+
+    /**
+     * converts change to string
+     * @return generated string
+     */
+    public String toString() {
+        return String.format("+%d reports", added.size());
+    }
+}
@@ -0,0 +1,15 @@
+package fxapp;
+
+/**
+ * Told when reports are added to a ReportManager.
+ */
+@FunctionalInterface
+public interface ReportListener {
+
+    /**
+     * Called with the changes since the last call
+     *
+     * @param change the reports added
+     */
+    void reportsChanged(ReportChange change);
+}
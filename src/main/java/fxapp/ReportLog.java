@@ -0,0 +1,131 @@
+package fxapp;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An append-only list that any number of threads may read while others
+ * append. Readers take a snapshot, a fixed-length view of the elements
+ * added so far, without locking; appends only hold a lock against each
+ * other.
+ *
+ * Elements are never moved or overwritten once added, so a snapshot
+ * stays valid after the backing array is replaced by a larger copy.
+ *
+ * @param <E> the element type
+ */
+public class ReportLog<E> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private volatile Object[] elements = new Object[INITIAL_CAPACITY];
+    private volatile int size;
+
+    /**
+     * Creates an empty log
+     */
+    public ReportLog() {
+    }
+
+    /**
+     * Creates a log holding the given elements, in order
+     *
+     * @param initial the first elements
+     */
+    public ReportLog(Collection<? extends E> initial) {
+        addAll(initial);
+    }
+
+    /**
+     * Appends an element. The element is visible to every snapshot taken
+     * after this returns.
+     *
+     * @param e the element to add
+     */
+    public synchronized void add(E e) {
+        int n = size;
+        Object[] a = elements;
+        if (n == a.length) {
+            a = Arrays.copyOf(a, n * 2);
+            elements = a;
+        }
+        a[n] = e;
+        size = n + 1;
+    }
+
+    /**
+     * Appends every element of a collection, in order
+     *
+     * @param c the elements to add
+     */
+    public synchronized void addAll(Collection<? extends E> c) {
+        int n = size;
+        Object[] a = elements;
+        if (n + c.size() > a.length) {
+            a = Arrays.copyOf(a, Math.max(n + c.size(), a.length * 2));
+            elements = a;
+        }
+        for (E e : c) {
+            a[n++] = e;
+        }
+        size = n;
+    }
+
+    /**
+     * Gets the number of elements added so far
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Takes an immutable view of the elements added so far. The size is
+     * read before the array, so the array seen is one that already held
+     * that many elements, or a later copy of it.
+     *
+     * @return the snapshot
+     */
+    public List<E> snapshot() {
+        int n = size;
+        return new Snapshot<>(elements, n);
+    }
+
+    /**
+     * A read-only view of the first elements of a backing array.
+     *
+     * @param <E> the element type
+     */
+    private static class Snapshot<E> extends AbstractList<E>
+            implements RandomAccess {
+        private final Object[] elements;
+        private final int size;
+
+        /**
+         * Creates a view
+         * @param elements the backing array
+         * @param size     how many elements the view holds
+         */
+        Snapshot(Object[] elements, int size) {
+            this.elements = elements;
+            this.size = size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            return (E) elements[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -1,41 +1,347 @@
 package fxapp;
 
+import model.GeoBox;
+import model.Location;
 import model.PurityReport;
 import model.Report;
 import model.SourceReport;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * Manages reports.
+ *
+ * Safe to use from several threads. The report lists are append-only
+ * logs, so the streams handed out read a snapshot and never block or
+ * see a report half-added. The k-d tree and the purity columns publish
+ * each report whole, so they are searched without locking. The grid,
+ * time index and rollups sit behind a read-write lock: queries share it
+ * only long enough to copy candidates out, and filter them after
+ * releasing it. Adds take the write lock briefly to index the new
+ * report, which also keeps them to one writer at a time.
+ *
+ * With a hot window set in the RetentionConfig, only reports created
+ * within the window before startup are held and indexed in memory (the
+ * hot tier). Older reports (the cold tier) are left in the database and
+ * every query reads the ones it needs through Persistent, so both tiers
+ * are answered by the same methods. Cold reports read recently are kept
+ * in a small cache.
  */
 public class ReportManager {
-    private List<SourceReport> sourceReports;
-    private List<PurityReport> purityReports;
+    private static final Logger LOGGER = Logger.getLogger("ReportManager");
+    private static final double GRID_DEGREES = 1.0;
+    private static final double NEAREST_START_KM = 10;
+    private static final double HALF_CIRCUMFERENCE_KM =
+            Math.PI * Location.EARTH_RADIUS_KM;
+
+    private final ReportLog<SourceReport> sourceReports;
+    private final ReportLog<PurityReport> purityReports;
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final SpatialGrid<Report> grid = new SpatialGrid<>(GRID_DEGREES);
+    private final KdTree<Report> neighbours;
+    private final TimeIndex<Report> timeline = new TimeIndex<>();
+    private final PurityColumns purityColumns = new PurityColumns();
+    private final PurityRollups rollups =
+            new PurityRollups(GRID_DEGREES, purityColumns);
     private final DatabaseManager db;
+    private volatile ReportWriter writer;
+    private final List<ReportSubscription> subscriptions =
+            new CopyOnWriteArrayList<>();
+    private final long hotCutoff;
+    private final ReportCache<SourceReport> coldSources;
+    private final ReportCache<PurityReport> coldPurities;
+    private final AtomicLong hotHits = new AtomicLong();
+    private final AtomicLong coldQueries = new AtomicLong();
 
     /**
      * Initializes report manager
      * @param db database manager to initialize reports with.
      */
     public ReportManager(DatabaseManager db) {
+        this(db, new RetentionConfig());
+    }
+
+    /**
+     * Initializes report manager, keeping the reports inside the hot
+     * window in memory
+     * @param db database manager to initialize reports with.
+     * @param retention how much history to keep in memory
+     */
+    public ReportManager(DatabaseManager db, RetentionConfig retention) {
+        this(db, retention, hotCutoff(retention));
+    }
+
+    /**
+     * Initializes report manager with the hot tier starting at a cutoff
+     * @param db database manager to initialize reports with
+     * @param retention how much history to keep in memory
+     * @param cutoff creation time the hot tier starts at
+     */
+    private ReportManager(DatabaseManager db, RetentionConfig retention,
+                          long cutoff) {
+        this(db, retention, cutoff, loadTable(db, SourceReport.class, cutoff),
+                loadTable(db, PurityReport.class, cutoff));
+    }
+
+    /**
+     * Initializes report manager with the hot reports already loaded and
+     * builds the in-memory indexes over them
+     * @param db database manager to store new reports with
+     * @param retention how much history to keep in memory
+     * @param cutoff creation time the hot tier starts at
+     * @param sources the stored source reports in the hot tier
+     * @param purities the stored purity reports in the hot tier
+     */
+    private ReportManager(DatabaseManager db, RetentionConfig retention,
+                          long cutoff, List<SourceReport> sources,
+                          List<PurityReport> purities) {
+        long start = System.nanoTime();
+        sourceReports = new ReportLog<>(sources);
+        purityReports = new ReportLog<>(purities);
+        hotReports().forEach(grid::add);
+        neighbours = new KdTree<>(
+                hotReports().collect(Collectors.toList()));
+        hotReports()
+                .sorted(Comparator.comparing(Report::getCreationDatetime))
+                .forEach(timeline::add);
+        purities.forEach(r -> rollups.add(purityColumns.add(r)));
+        this.db = db;
+        hotCutoff = cutoff;
+        coldSources = new ReportCache<>(retention.getColdCacheSize());
+        coldPurities = new ReportCache<>(retention.getColdCacheSize());
+        LOGGER.info(String.format("Indexed %d reports in %.1f ms",
+                sources.size() + purities.size(),
+                (System.nanoTime() - start) / 1e6));
+    }
+
+    /**
+     * Loads both report tables at the same time on background threads,
+     * each over its own pooled read connection, then builds the indexes.
+     * @param db database manager to load reports from
+     * @return completes with the report manager once it is ready
+     */
+    public static CompletableFuture<ReportManager> load(DatabaseManager db) {
+        return load(db, new RetentionConfig());
+    }
+
+    /**
+     * Loads the hot tier of both report tables at the same time on
+     * background threads, each over its own pooled read connection, then
+     * builds the indexes.
+     * @param db database manager to load reports from
+     * @param retention how much history to keep in memory
+     * @return completes with the report manager once it is ready
+     */
+    public static CompletableFuture<ReportManager> load(DatabaseManager db,
+            RetentionConfig retention) {
+        long cutoff = hotCutoff(retention);
+        ExecutorService loaders = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "report-loader");
+            t.setDaemon(true);
+            return t;
+        });
+        CompletableFuture<List<SourceReport>> sources = CompletableFuture
+                .supplyAsync(() -> loadTable(db, SourceReport.class, cutoff),
+                        loaders);
+        CompletableFuture<List<PurityReport>> purities = CompletableFuture
+                .supplyAsync(() -> loadTable(db, PurityReport.class, cutoff),
+                        loaders);
+        CompletableFuture<ReportManager> ready = sources.thenCombine(purities,
+            (s, p) -> new ReportManager(db, retention, cutoff, s, p));
+        ready.whenComplete((rm, e) -> loaders.shutdown());
+        return ready;
+    }
+
+    /**
+     * Gets the creation time the hot tier starts at, as of now
+     * @param retention how much history to keep in memory
+     * @return the cutoff, or Long.MIN_VALUE to keep everything
+     */
+    private static long hotCutoff(RetentionConfig retention) {
+        return retention.isTiered()
+                ? System.currentTimeMillis() - retention.getHotWindowMillis()
+                : Long.MIN_VALUE;
+    }
+
+    /**
+     * Loads the stored reports of one type created since the cutoff,
+     * logging how long it took
+     * @param db database manager to load from
+     * @param type the report type
+     * @param cutoff earliest creation time to load
+     * @param <R> the report type
+     * @return the reports, or an empty list if they could not be loaded
+     */
+    private static <R extends Report> List<R> loadTable(DatabaseManager db,
+            Class<R> type, long cutoff) {
+        long start = System.nanoTime();
         try {
-            sourceReports = db.getPersistence(SourceReport.class).retrieveAll();
+            Persistent<R> p = db.getPersistence(type);
+            List<R> reports = (cutoff == Long.MIN_VALUE) ? p.retrieveAll()
+                    : p.retrieveBetween("datetime", cutoff, Long.MAX_VALUE);
+            LOGGER.info(String.format("Loaded %d %s in %.1f ms",
+                    reports.size(), type.getSimpleName(),
+                    (System.nanoTime() - start) / 1e6));
+            return reports;
         } catch (SQLException e) {
             e.printStackTrace();
-            sourceReports = new LinkedList<>();
+            return Collections.emptyList();
         }
-        try {
-            purityReports = db.getPersistence(PurityReport.class).retrieveAll();
-        } catch (SQLException e) {
-            e.printStackTrace();
-            purityReports = new ArrayList<>();
+    }
+
+    /**
+     * Switches to write-behind mode: added reports are visible right away
+     * and are stored by a background writer that commits them in batches.
+     * A report whose batch fails stays in memory, the listener is told.
+     *
+     * @param capacity how many reports may wait to be written before
+     *                 adding a report blocks
+     * @param maxBatch most reports committed in one transaction
+     * @param listener told when reports are durable or failed, may be null
+     */
+    public synchronized void enableWriteBehind(int capacity, int maxBatch,
+            ReportWriter.DurabilityListener listener) {
+        if (writer == null) {
+            writer = new ReportWriter(db, capacity, maxBatch, listener);
+        }
+    }
+
+    /**
+     * Gets the background writer's queue depth and commit latency.
+     * @return the writer metrics, or null when not in write-behind mode
+     */
+    public WriterMetrics getWriterMetrics() {
+        ReportWriter w = writer;
+        return (w == null) ? null : w.getMetrics();
+    }
+
+    /**
+     * Waits until every added report has been written to the database.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+        ReportWriter w = writer;
+        if (w != null) {
+            w.flush();
+        }
+    }
+
+    /**
+     * Writes out any queued reports and stops the background writer.
+     */
+    public void close() {
+        ReportWriter w = writer;
+        if (w != null) {
+            w.close();
+        }
+    }
+
+    /**
+     * Subscribes to reports added to the manager. The listener gets
+     * changes in batches: however many reports arrive before the
+     * executor runs it, it is called once with all of them.
+     *
+     * @param listener told about each batch of changes
+     * @param executor runs the listener, e.g. Platform::runLater for
+     *                 listeners that touch the UI
+     * @return the subscription, cancel it to stop getting changes
+     */
+    public ReportSubscription subscribe(ReportListener listener,
+                                        Executor executor) {
+        ReportSubscription s =
+                new ReportSubscription(listener, executor, subscriptions);
+        subscriptions.add(s);
+        return s;
+    }
+
+    /**
+     * Gets the reports held in memory, as of the call
+     * @return stream of the hot reports
+     */
+    private Stream<Report> hotReports() {
+        return Stream.concat(sourceReports.snapshot().stream(),
+                purityReports.snapshot().stream());
+    }
+
+    /**
+     * Gets the reports of one type held in memory, as of the call
+     * @param type the report type, or null for both types
+     * @return stream of the hot reports
+     */
+    private Stream<? extends Report> hotReports(Class<? extends Report> type) {
+        if (type == SourceReport.class) {
+            return sourceReports.snapshot().stream();
+        }
+        if (type == PurityReport.class) {
+            return purityReports.snapshot().stream();
+        }
+        return hotReports();
+    }
+
+    /**
+     * Checks whether a report belongs in the hot tier
+     * @param report the report
+     * @return true if it was created since the hot tier's cutoff
+     */
+    private boolean isHot(Report report) {
+        return report.getCreationDatetime().getTime() >= hotCutoff;
+    }
+
+    /**
+     * Checks whether older reports are left in the database
+     * @return true if there is a cold tier
+     */
+    private boolean hasColdTier() {
+        return hotCutoff != Long.MIN_VALUE;
+    }
+
+    /**
+     * Adds a new report to the hot tier and its indexes and tells
+     * subscribers. A report dated before the hot window is only stored,
+     * so it goes straight to the cold tier. The report joins its log
+     * last, while the indexes are still locked, so a scan never sees a
+     * report the indexes are missing.
+     * @param report the report to index
+     */
+    private void index(Report report) {
+        if (isHot(report)) {
+            indexLock.writeLock().lock();
+            try {
+                grid.add(report);
+                neighbours.add(report);
+                timeline.add(report);
+                if (report instanceof PurityReport) {
+                    rollups.add(purityColumns.add((PurityReport) report));
+                    purityReports.add((PurityReport) report);
+                } else {
+                    sourceReports.add((SourceReport) report);
+                }
+            } finally {
+                indexLock.writeLock().unlock();
+            }
+        }
+        for (ReportSubscription s : subscriptions) {
+            s.reportAdded(report);
         }
-        this.db = db;
     }
 
     /**
@@ -44,9 +350,15 @@ public class ReportManager {
      * @param report the report to add
      */
     public void addSourceReport(SourceReport report) {
+        ReportWriter w = writer;
+        if (w != null) {
+            index(report);
+            w.submit(report);
+            return;
+        }
         try {
             db.getPersistence(SourceReport.class).store(report);
-            sourceReports.add(report);
+            index(report);
         } catch (SQLException e) {
             System.err.println("Error: could not store report in database: "
                     + report);
@@ -59,9 +371,15 @@ public class ReportManager {
      * @param report report to add
      */
     public void addPurityReport(PurityReport report) {
+        ReportWriter w = writer;
+        if (w != null) {
+            index(report);
+            w.submit(report);
+            return;
+        }
         try {
             db.getPersistence(PurityReport.class).store(report);
-            purityReports.add(report);
+            index(report);
         } catch (SQLException e) {
             System.err.println("Error: could not store report in database: "
                     + report);
@@ -70,27 +388,569 @@ public class ReportManager {
     }
 
     /**
-     * Returns all water reports
-     *
-     * @return stream of all reports
+     * Retrieves a page of stored source reports, ordered by report number.
+     * In write-behind mode the queued reports are written out first, so
+     * the pages include every report added so far.
+     * @param after token from the previous page, or null for the first
+     * @param limit maximum number of reports in the page
+     * @return the page of source reports
+     * @throws SQLException if the reports cannot be loaded
+     */
+    public Page<SourceReport> getSourceReportPage(Page.Token after, int limit)
+            throws SQLException {
+        awaitWrites();
+        return db.getPersistence(SourceReport.class).page("id", after, limit);
+    }
+
+    /**
+     * Retrieves a page of stored purity reports, ordered by report number.
+     * In write-behind mode the queued reports are written out first, so
+     * the pages include every report added so far.
+     * @param after token from the previous page, or null for the first
+     * @param limit maximum number of reports in the page
+     * @return the page of purity reports
+     * @throws SQLException if the reports cannot be loaded
+     */
+    public Page<PurityReport> getPurityReportPage(Page.Token after, int limit)
+            throws SQLException {
+        awaitWrites();
+        return db.getPersistence(PurityReport.class).page("id", after, limit);
+    }
+
+    /**
+     * Waits for the background writer before reading from the database.
+     * @throws SQLException if interrupted while waiting
+     */
+    private void awaitWrites() throws SQLException {
+        try {
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for queued reports",
+                    e);
+        }
+    }
+
+    /**
+     * Finds the reports inside a box using the in-memory grid, and the
+     * database's spatial index for the cold tier. A box whose lonMin is
+     * greater than its lonMax crosses the antimeridian.
+     * @param box the region to search
+     * @return the reports inside the box
+     * @throws PersistenceException if the cold tier cannot be read
+     */
+    public Stream<Report> reportsWithin(GeoBox box) {
+        List<Report> found = new ArrayList<>();
+        indexLock.readLock().lock();
+        try {
+            grid.forEachWithin(box, found::add);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        hotHits.addAndGet(found.size());
+        found.addAll(coldWithin(SourceReport.class, box));
+        found.addAll(coldWithin(PurityReport.class, box));
+        return found.stream();
+    }
+
+    /**
+     * Finds the reports within a great-circle distance of a location
+     * @param location center of the search
+     * @param radiusKm how far to search, in kilometers
+     * @return the reports within the radius
+     * @throws PersistenceException if the cold tier cannot be read
+     */
+    public Stream<Report> reportsNear(Location location, double radiusKm) {
+        List<Report> found = new ArrayList<>();
+        indexLock.readLock().lock();
+        try {
+            grid.forEachNear(location, radiusKm, found::add);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        hotHits.addAndGet(found.size());
+        found.addAll(coldNear(location, radiusKm, null));
+        return found.stream();
+    }
+
+    /**
+     * Finds the reports closest to a location by great-circle distance
+     * @param location where to search from
+     * @param k        most reports to return
+     * @param filter   only reports it accepts are returned, may be null
+     * @return up to k reports, nearest first
+     * @throws PersistenceException if the cold tier cannot be read
      */
-    public Stream<Report> getAllReports() {
-        return Stream.concat(sourceReports.stream(), purityReports.stream());
+    public List<Report> nearest(Location location, int k,
+                                Predicate<? super Report> filter) {
+        List<Report> found = neighbours.nearest(location, k, filter);
+        hotHits.addAndGet(found.size());
+        if (!hasColdTier() || k <= 0) {
+            return found;
+        }
+        // only cold reports closer than the k-th hot one can make the
+        // cut; without k hot ones, widen the circle until it holds k
+        double radius = (found.size() == k)
+                ? location.distanceTo(found.get(k - 1).getLocation())
+                : NEAREST_START_KM;
+        List<Report> cold;
+        while (true) {
+            cold = coldNear(location, radius, filter);
+            double r = radius;
+            long hot = found.stream().filter(h ->
+                    location.distanceTo(h.getLocation()) <= r).count();
+            if (cold.size() + hot >= k || radius >= HALF_CIRCUMFERENCE_KM) {
+                break;
+            }
+            radius *= 4;
+        }
+        if (cold.isEmpty()) {
+            return found;
+        }
+        List<Report> merged = new ArrayList<>(found);
+        merged.addAll(cold);
+        merged.sort(Comparator.comparingDouble(r ->
+                location.distanceTo(r.getLocation())));
+        return new ArrayList<>(merged.subList(0, Math.min(k,
+                merged.size())));
     }
 
     /**
-     * Retrieves the stored source reports.
-     * @return the source reports
+     * Finds the reports created in a time range, oldest first
+     * @param from start of the range, inclusive
+     * @param to   end of the range, exclusive
+     * @return the reports created in the range
+     * @throws PersistenceException if the cold tier cannot be read
      */
-    public Stream<? extends Report> getSourceReports() {
-        return sourceReports.stream();
+    public Stream<Report> reportsBetween(Date from, Date to) {
+        List<Report> hot;
+        indexLock.readLock().lock();
+        try {
+            hot = timeline.between(from.getTime(), to.getTime());
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        hotHits.addAndGet(hot.size());
+        if (!hasColdTier() || from.getTime() >= hotCutoff) {
+            return hot.stream();
+        }
+        List<Report> found = new ArrayList<>(coldBetween(SourceReport.class,
+                from.getTime(), to.getTime()));
+        found.addAll(coldBetween(PurityReport.class, from.getTime(),
+                to.getTime()));
+        found.sort(Comparator.comparing(Report::getCreationDatetime));
+        found.addAll(hot);
+        return found.stream();
     }
-    
+
+    /**
+     * Summarizes the virus PPM of the purity reports in a region for each
+     * month of a year, from rollups kept up to date as reports arrive
+     * @param box  the region
+     * @param year the year
+     * @return twelve summaries, January first
+     * @throws PersistenceException if the cold tier cannot be read
+     */
+    public PpmStats[] monthlyVirusPPM(GeoBox box, int year) {
+        PpmStats[] months;
+        indexLock.readLock().lock();
+        try {
+            months = rollups.monthlyVirus(box, year);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return addColdMonths(months, box, year, PurityReport::getVirusPPM);
+    }
+
+    /**
+     * Summarizes the contaminant PPM of the purity reports in a region
+     * for each month of a year, from rollups kept up to date as reports
+     * arrive
+     * @param box  the region
+     * @param year the year
+     * @return twelve summaries, January first
+     * @throws PersistenceException if the cold tier cannot be read
+     */
+    public PpmStats[] monthlyContaminantPPM(GeoBox box, int year) {
+        PpmStats[] months;
+        indexLock.readLock().lock();
+        try {
+            months = rollups.monthlyContaminant(box, year);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return addColdMonths(months, box, year,
+                PurityReport::getContaminantPPM);
+    }
+
+    /**
+     * Runs a query over both tiers: the hot tier through the index the
+     * plan picks and the cold tier through SQL. Every candidate is
+     * checked against the whole query, then the results are put in the
+     * query's order and cut to its limit.
+     * @param query the query
+     * @return the matching reports
+     * @throws PersistenceException if the cold tier cannot be read
+     */
+    public List<Report> find(ReportQuery query) {
+        QueryPlan plan = plan(query);
+        if (plan.getAccess() == QueryPlan.Access.KD_TREE) {
+            return nearest(query.getOrigin(), query.getLimit(),
+                    query::matches);
+        }
+        List<Report> candidates = new ArrayList<>();
+        if (plan.getAccess() == QueryPlan.Access.SCAN) {
+            hotReports(query.getType()).forEach(candidates::add);
+        } else if (plan.getAccess() != QueryPlan.Access.NONE) {
+            indexLock.readLock().lock();
+            try {
+                if (plan.getAccess() == QueryPlan.Access.SPATIAL_GRID) {
+                    grid.forEachWithin(query.getBox(), candidates::add);
+                } else {
+                    timeline.forEachBetween(query.getFrom(), query.getTo(),
+                            candidates::add);
+                }
+            } finally {
+                indexLock.readLock().unlock();
+            }
+        }
+        List<Report> found = new ArrayList<>();
+        for (Report r : candidates) {
+            if (query.matches(r)) {
+                found.add(r);
+            }
+        }
+        hotHits.addAndGet(found.size());
+        for (QueryPlan.SqlStep step : plan.getSqlSteps()) {
+            for (Report r : coldWhere(step.getType(), step)) {
+                if (query.matches(r)) {
+                    found.add(r);
+                }
+            }
+        }
+        orderAndLimit(found, query);
+        return found;
+    }
+
+    /**
+     * Shows how find would run a query, including SQLite's own plan for
+     * the cold tier's SQL
+     * @param query the query
+     * @return the plan
+     */
+    public QueryPlan explain(ReportQuery query) {
+        QueryPlan plan = plan(query);
+        for (QueryPlan.SqlStep step : plan.getSqlSteps()) {
+            try {
+                db.getPersistence(step.getType())
+                        .explainWhere(step.getCondition(), step.getOrder())
+                        .forEach(plan::addDetail);
+            } catch (SQLException e) {
+                plan.addDetail("no plan: " + e.getMessage());
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Picks how to run a query. A nearest query with a limit uses the
+     * k-d tree. Otherwise the hot tier is read through whichever of the
+     * time index, the grid or a scan of the query's type has the fewest
+     * candidates, and the part of the time range before the hot window
+     * is pushed down to SQL for each table the query can match. Source
+     * reports have no PPM readings, so a query with a PPM filter never
+     * reads them.
+     * @param query the query
+     * @return the plan
+     */
+    private QueryPlan plan(ReportQuery query) {
+        List<QueryPlan.SqlStep> steps = new ArrayList<>();
+        if (query.getOrder() == ReportQuery.Order.NEAREST
+                && query.getLimit() >= 0) {
+            return new QueryPlan(QueryPlan.Access.KD_TREE, query.getLimit(),
+                    steps);
+        }
+        if (hasColdTier() && query.getFrom() < hotCutoff) {
+            if (query.getType() != PurityReport.class
+                    && !query.hasPpmFilter()) {
+                steps.add(sqlStep(SourceReport.class, query));
+            }
+            if (query.getType() != SourceReport.class) {
+                steps.add(sqlStep(PurityReport.class, query));
+            }
+        }
+        if (query.getTo() <= hotCutoff) {
+            return new QueryPlan(QueryPlan.Access.NONE, 0, steps);
+        }
+        QueryPlan.Access access = QueryPlan.Access.SCAN;
+        long best = (query.getType() == SourceReport.class)
+                ? sourceReports.size()
+                : (query.getType() == PurityReport.class)
+                ? purityReports.size()
+                : sourceReports.size() + purityReports.size();
+        indexLock.readLock().lock();
+        try {
+            if (query.hasTimeRange()) {
+                int rows = timeline.count(query.getFrom(), query.getTo());
+                if (rows < best) {
+                    best = rows;
+                    access = QueryPlan.Access.TIME_INDEX;
+                }
+            }
+            if (query.getBox() != null) {
+                int rows = grid.estimate(query.getBox());
+                if (rows < best) {
+                    best = rows;
+                    access = QueryPlan.Access.SPATIAL_GRID;
+                }
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return new QueryPlan(access, best, steps);
+    }
+
+    /**
+     * Builds the SQL reading one report table's part of a query from the
+     * cold tier. Legacy rows whose condition code has not been backfilled
+     * yet are matched on the condition string.
+     * @param type  the report type
+     * @param query the query
+     * @return the SQL step
+     */
+    private QueryPlan.SqlStep sqlStep(Class<? extends Report> type,
+                                      ReportQuery query) {
+        List<String> where = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        where.add("datetime >= (?) AND datetime < (?)");
+        params.add(query.getFrom());
+        params.add(Math.min(query.getTo(), hotCutoff));
+        GeoBox box = query.getBox();
+        if (box != null) {
+            where.add("latitude BETWEEN (?) AND (?)");
+            where.add(box.crossesAntimeridian()
+                    ? "(longitude >= (?) OR longitude <= (?))"
+                    : "longitude BETWEEN (?) AND (?)");
+            params.add(box.getLatMin());
+            params.add(box.getLatMax());
+            params.add(box.getLonMin());
+            params.add(box.getLonMax());
+        }
+        if (query.getCondition() != null) {
+            where.add("(water_condition_id = (?) OR (water_condition_id IS"
+                    + " NULL AND water_condition = (?)))");
+            params.add(query.getConditionCode());
+            params.add(query.getCondition());
+        }
+        if (type == PurityReport.class) {
+            addRange(where, params, "virus_ppm", query.getMinVirusPPM(),
+                    query.getMaxVirusPPM());
+            addRange(where, params, "contaminant_ppm",
+                    query.getMinContaminantPPM(),
+                    query.getMaxContaminantPPM());
+        }
+        String order = null;
+        if (query.getOrder() == ReportQuery.Order.OLDEST_FIRST) {
+            order = "datetime";
+        } else if (query.getOrder() == ReportQuery.Order.NEWEST_FIRST) {
+            order = "datetime DESC";
+        }
+        return new QueryPlan.SqlStep(type, String.join(" AND ", where),
+                order, query.getLimit(), params.toArray());
+    }
+
+    /**
+     * Adds the bounds of a PPM range to a WHERE condition
+     * @param where  the condition's terms
+     * @param params the condition's parameters
+     * @param column the PPM column
+     * @param min    lowest value, or negative infinity
+     * @param max    highest value, or positive infinity
+     */
+    private static void addRange(List<String> where, List<Object> params,
+                                 String column, double min, double max) {
+        if (!Double.isInfinite(min)) {
+            where.add(column + " >= (?)");
+            params.add(min);
+        }
+        if (!Double.isInfinite(max)) {
+            where.add(column + " <= (?)");
+            params.add(max);
+        }
+    }
+
+    /**
+     * Runs one SQL step of a plan against the cold tier
+     * @param type the report type
+     * @param step the SQL step
+     * @param <R> the report type
+     * @return the cold reports read
+     * @throws PersistenceException if the reports cannot be read
+     */
+    private <R extends Report> List<R> coldWhere(Class<R> type,
+                                                 QueryPlan.SqlStep step) {
+        try {
+            coldQueries.incrementAndGet();
+            return intern(type, db.getPersistence(type).retrieveWhere(
+                    step.getCondition(), step.getOrder(), step.getLimit(),
+                    step.getParams()));
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    /**
+     * Puts query results in the query's order and cuts them to its limit
+     * @param found the results, sorted in place
+     * @param query the query
+     */
+    private static void orderAndLimit(List<Report> found, ReportQuery query) {
+        switch (query.getOrder()) {
+        case OLDEST_FIRST:
+            found.sort(Comparator.comparing(Report::getCreationDatetime));
+            break;
+        case NEWEST_FIRST:
+            found.sort(Comparator.comparing(Report::getCreationDatetime)
+                    .reversed());
+            break;
+        case NEAREST:
+            Location origin = query.getOrigin();
+            found.sort(Comparator.comparingDouble(r ->
+                    origin.distanceTo(r.getLocation())));
+            break;
+        default:
+            break;
+        }
+        int limit = query.getLimit();
+        if (limit >= 0 && found.size() > limit) {
+            found.subList(limit, found.size()).clear();
+        }
+    }
+
+    /**
+     * Gets how many query results each tier has served.
+     * @return the tier metrics
+     */
+    public TierMetrics getTierMetrics() {
+        return new TierMetrics(sourceReports.size() + purityReports.size(),
+                coldSources.size() + coldPurities.size(), hotHits.get(),
+                coldSources.getHits() + coldPurities.getHits(),
+                coldSources.getMisses() + coldPurities.getMisses(),
+                coldQueries.get());
+    }
+
+    /**
+     * Reads the cold reports of one type created in a time range, using
+     * the datetime index
+     * @param type the report type
+     * @param from start of the range, inclusive
+     * @param to   end of the range, exclusive
+     * @param <R> the report type
+     * @return the cold reports in the range, oldest first
+     * @throws PersistenceException if the reports cannot be read
+     */
+    private <R extends Report> List<R> coldBetween(Class<R> type, long from,
+                                                   long to) {
+        long end = Math.min(to, hotCutoff);
+        if (from >= end) {
+            return Collections.emptyList();
+        }
+        try {
+            coldQueries.incrementAndGet();
+            return intern(type, db.getPersistence(type)
+                    .retrieveBetween("datetime", from, end));
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    /**
+     * Reads the cold reports of one type inside a box, using the spatial
+     * index. A box across the antimeridian is read as two.
+     * @param type the report type
+     * @param box  the region
+     * @param <R> the report type
+     * @return the cold reports inside the box
+     * @throws PersistenceException if the reports cannot be read
+     */
+    private <R extends Report> List<R> coldWithin(Class<R> type,
+                                                  GeoBox box) {
+        if (!hasColdTier()) {
+            return Collections.emptyList();
+        }
+        try {
+            Persistent<R> p = db.getPersistence(type);
+            coldQueries.addAndGet(box.crossesAntimeridian() ? 2 : 1);
+            List<R> found = p.retrieveWithin(box.getLatMin(),
+                    box.getLatMax(), box.getLonMin(), box.getLonMax());
+            found.removeIf(this::isHot);
+            return intern(type, found);
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    /**
+     * Reads the cold reports of both types within a great-circle distance
+     * @param location center of the search
+     * @param radiusKm how far to search, in kilometers
+     * @param filter   only reports it accepts are returned, may be null
+     * @return the cold reports within the radius
+     */
+    private List<Report> coldNear(Location location, double radiusKm,
+                                  Predicate<? super Report> filter) {
+        GeoBox box = GeoBox.around(location, radiusKm);
+        List<Report> found = new ArrayList<>(
+                coldWithin(SourceReport.class, box));
+        found.addAll(coldWithin(PurityReport.class, box));
+        found.removeIf(r -> location.distanceTo(r.getLocation()) > radiusKm
+                || (filter != null && !filter.test(r)));
+        return found;
+    }
+
+    /**
+     * Adds the cold purity reports of a region and year to monthly
+     * summaries taken from the hot tier's rollups
+     * @param months twelve summaries, January first
+     * @param box    the region
+     * @param year   the year
+     * @param ppm    the reading to summarize
+     * @return the same summaries
+     */
+    private PpmStats[] addColdMonths(PpmStats[] months, GeoBox box, int year,
+                                     ToDoubleFunction<PurityReport> ppm) {
+        if (!hasColdTier()) {
+            return months;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, Calendar.JANUARY, 1);
+        long start = calendar.getTimeInMillis();
+        calendar.add(Calendar.YEAR, 1);
+        long end = calendar.getTimeInMillis();
+        for (PurityReport r : coldBetween(PurityReport.class, start, end)) {
+            if (box.contains(r.getLocation())) {
+                calendar.setTime(r.getCreationDatetime());
+                months[calendar.get(Calendar.MONTH)]
+                        .add(ppm.applyAsDouble(r));
+            }
+        }
+        return months;
+    }
+
     /**
-     * Retrieves the stored purity reports.
-     * @return the purity reports
+     * Swaps reports just read from the cold tier for their cached
+     * instances, caching the ones not seen before
+     * @param type   the report type
+     * @param loaded the reports read
+     * @param <R> the report type
+     * @return the same list, holding the cached instances
      */
-    public Stream<? extends Report> getPurityReports() {
-        return purityReports.stream();
+    @SuppressWarnings("unchecked")
+    private <R extends Report> List<R> intern(Class<R> type, List<R> loaded) {
+        ReportCache<R> cache = (ReportCache<R>) (type == SourceReport.class
+                ? coldSources : coldPurities);
+        loaded.replaceAll(cache::intern);
+        return loaded;
     }
 }
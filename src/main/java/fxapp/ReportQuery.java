@@ -0,0 +1,404 @@
+package fxapp;
+
+import model.GeoBox;
+import model.Location;
+import model.PurityReport;
+import model.Report;
+import model.SourceReport;
+import model.WaterTerms;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * A filter over reports, built with ReportQuery.builder(). Run it with
+ * ReportManager.find, which picks the index that narrows it down most,
+ * or test reports against it directly with matches.
+ *
+ * Every filter left unset matches everything. A query with a PPM
+ * threshold only matches purity reports.
+ */
+public class ReportQuery {
+    private final Class<? extends Report> type;
+    private final GeoBox box;
+    private final long from;
+    private final long to;
+    private final String condition;
+    private final int conditionCode;
+    private final double minVirusPPM;
+    private final double maxVirusPPM;
+    private final double minContaminantPPM;
+    private final double maxContaminantPPM;
+    private final int limit;
+    private final Order order;
+    private final Location origin;
+
+    /**
+     * Creates a query from a builder's settings
+     * @param b the builder
+     */
+    private ReportQuery(Builder b) {
+        this.type = (b.type == null && b.hasPpmFilter())
+                ? PurityReport.class : b.type;
+        this.box = b.box;
+        this.from = b.from;
+        this.to = b.to;
+        this.condition = b.condition;
+        this.conditionCode = (b.condition == null)
+                ? WaterTerms.NONE : WaterTerms.find(b.condition);
+        this.minVirusPPM = b.minVirusPPM;
+        this.maxVirusPPM = b.maxVirusPPM;
+        this.minContaminantPPM = b.minContaminantPPM;
+        this.maxContaminantPPM = b.maxContaminantPPM;
+        this.limit = b.limit;
+        this.order = b.order;
+        this.origin = b.origin;
+    }
+
+    /**
+     * Starts a query that matches every report
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Checks a report against every filter of the query. The limit and
+     * order are not applied.
+     *
+     * @param report the report
+     * @return true if the report matches
+     */
+    public boolean matches(Report report) {
+        if (type != null && !type.isInstance(report)) {
+            return false;
+        }
+        long time = report.getCreationDatetime().getTime();
+        if (time < from || time >= to) {
+            return false;
+        }
+        if (box != null && !box.contains(report.getLocation())) {
+            return false;
+        }
+        if (condition != null && conditionCode(report) != conditionCode) {
+            return false;
+        }
+        if (!hasPpmFilter()) {
+            return true;
+        }
+        PurityReport p = report.getPurityReport();
+        return p != null
+                && p.getVirusPPM() >= minVirusPPM
+                && p.getVirusPPM() <= maxVirusPPM
+                && p.getContaminantPPM() >= minContaminantPPM
+                && p.getContaminantPPM() <= maxContaminantPPM;
+    }
+
+    /**
+     * Gets the dictionary code of a report's water condition
+     * @param report the report
+     * @return the condition code
+     */
+    private static int conditionCode(Report report) {
+        if (report instanceof PurityReport) {
+            return ((PurityReport) report).getWaterConditionCode();
+        }
+        if (report instanceof SourceReport) {
+            return ((SourceReport) report).getWaterConditionCode();
+        }
+        return WaterTerms.NONE;
+    }
+
+    /**
+     * checks whether the query has any PPM threshold
+     * @return true if virus or contaminant PPM is bounded
+     */
+    public boolean hasPpmFilter() {
+        return hasPpmFilter(minVirusPPM, maxVirusPPM, minContaminantPPM,
+                maxContaminantPPM);
+    }
+
+    /**
+     * checks whether any of the PPM bounds is set
+     * @param bounds the lower and upper bounds
+     * @return true if one is finite
+     */
+    private static boolean hasPpmFilter(double... bounds) {
+        for (double bound : bounds) {
+            if (!Double.isInfinite(bound)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * checks whether the query has a time range
+     * @return true if the creation time is bounded
+     */
+    public boolean hasTimeRange() {
+        return from != Long.MIN_VALUE || to != Long.MAX_VALUE;
+    }
+
+    /**
+     * gets the report type matched
+     * @return the type, or null for any type
+     */
+    public Class<? extends Report> getType() {
+        return type;
+    }
+
+    /**
+     * gets the region matched
+     * @return the box, or null for anywhere
+     */
+    public GeoBox getBox() {
+        return box;
+    }
+
+    /**
+     * gets the start of the time range
+     * @return epoch milliseconds, inclusive
+     */
+    public long getFrom() {
+        return from;
+    }
+
+    /**
+     * gets the end of the time range
+     * @return epoch milliseconds, exclusive
+     */
+    public long getTo() {
+        return to;
+    }
+
+    /**
+     * gets the water condition matched
+     * @return the condition, or null for any
+     */
+    public String getCondition() {
+        return condition;
+    }
+
+    /**
+     * gets the dictionary code of the water condition matched
+     * @return the code, or -1 if no report has had the condition
+     */
+    public int getConditionCode() {
+        return conditionCode;
+    }
+
+    /**
+     * gets the lowest virus PPM matched
+     * @return the bound, or negative infinity
+     */
+    public double getMinVirusPPM() {
+        return minVirusPPM;
+    }
+
+    /**
+     * gets the highest virus PPM matched
+     * @return the bound, or positive infinity
+     */
+    public double getMaxVirusPPM() {
+        return maxVirusPPM;
+    }
+
+    /**
+     * gets the lowest contaminant PPM matched
+     * @return the bound, or negative infinity
+     */
+    public double getMinContaminantPPM() {
+        return minContaminantPPM;
+    }
+
+    /**
+     * gets the highest contaminant PPM matched
+     * @return the bound, or positive infinity
+     */
+    public double getMaxContaminantPPM() {
+        return maxContaminantPPM;
+    }
+
+    /**
+     * gets the most reports returned
+     * @return the limit, or -1 for no limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * gets the order reports are returned in
+     * @return the order
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * gets the location NEAREST orders by
+     * @return the location, or null for other orders
+     */
+    public Location getOrigin() {
+        return origin;
+    }
+
+    /**
+     * The order a query's results come back in
+     */
+    public enum Order {
+        ANY, OLDEST_FIRST, NEWEST_FIRST, NEAREST
+    }
+
+    /**
+     * Collects the filters of a ReportQuery
+     */
+    public static class Builder {
+        private Class<? extends Report> type;
+        private GeoBox box;
+        private long from = Long.MIN_VALUE;
+        private long to = Long.MAX_VALUE;
+        private String condition;
+        private double minVirusPPM = Double.NEGATIVE_INFINITY;
+        private double maxVirusPPM = Double.POSITIVE_INFINITY;
+        private double minContaminantPPM = Double.NEGATIVE_INFINITY;
+        private double maxContaminantPPM = Double.POSITIVE_INFINITY;
+        private int limit = -1;
+        private Order order = Order.ANY;
+        private Location origin;
+
+        /**
+         * Only matches reports of one type
+         * @param type SourceReport.class or PurityReport.class
+         * @return this builder
+         */
+        public Builder type(Class<? extends Report> type) {
+            this.type = type;
+            return this;
+        }
+
+        /**
+         * Only matches reports inside a box
+         * @param box the region
+         * @return this builder
+         */
+        public Builder within(GeoBox box) {
+            this.box = box;
+            return this;
+        }
+
+        /**
+         * Only matches reports created in a time range
+         * @param from start of the range, inclusive
+         * @param to   end of the range, exclusive
+         * @return this builder
+         */
+        public Builder between(Date from, Date to) {
+            this.from = from.getTime();
+            this.to = to.getTime();
+            return this;
+        }
+
+        /**
+         * Only matches reports created in a year, in the local time zone
+         * @param year the year
+         * @return this builder
+         */
+        public Builder inYear(int year) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.clear();
+            calendar.set(year, Calendar.JANUARY, 1);
+            Date start = calendar.getTime();
+            calendar.add(Calendar.YEAR, 1);
+            return between(start, calendar.getTime());
+        }
+
+        /**
+         * Only matches reports with a water condition
+         * @param condition the condition
+         * @return this builder
+         */
+        public Builder condition(String condition) {
+            this.condition = condition;
+            return this;
+        }
+
+        /**
+         * Only matches purity reports with a virus PPM in a range
+         * @param min lowest PPM, inclusive
+         * @param max highest PPM, inclusive
+         * @return this builder
+         */
+        public Builder virusPPM(double min, double max) {
+            this.minVirusPPM = min;
+            this.maxVirusPPM = max;
+            return this;
+        }
+
+        /**
+         * Only matches purity reports with a contaminant PPM in a range
+         * @param min lowest PPM, inclusive
+         * @param max highest PPM, inclusive
+         * @return this builder
+         */
+        public Builder contaminantPPM(double min, double max) {
+            this.minContaminantPPM = min;
+            this.maxContaminantPPM = max;
+            return this;
+        }
+
+        /**
+         * Returns at most a number of reports
+         * @param limit the most reports, or -1 for no limit
+         * @return this builder
+         */
+        public Builder limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * Returns reports oldest or newest first
+         * @param order OLDEST_FIRST, NEWEST_FIRST or ANY
+         * @return this builder
+         */
+        public Builder orderBy(Order order) {
+            if (order == Order.NEAREST) {
+                throw new IllegalArgumentException("Use nearest(location)");
+            }
+            this.order = order;
+            this.origin = null;
+            return this;
+        }
+
+        /**
+         * Returns reports nearest a location first
+         * @param location where distances are measured from
+         * @return this builder
+         */
+        public Builder nearest(Location location) {
+            this.order = Order.NEAREST;
+            this.origin = location;
+            return this;
+        }
+
+        /**
+         * Builds the query
+         * @return the query
+         */
+        public ReportQuery build() {
+            return new ReportQuery(this);
+        }
+
+        /**
+         * checks whether any of the PPM bounds is set
+         * @return true if one is finite
+         */
+        private boolean hasPpmFilter() {
+            return ReportQuery.hasPpmFilter(minVirusPPM, maxVirusPPM,
+                    minContaminantPPM, maxContaminantPPM);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package fxapp;
+
+import model.Report;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * One listener's subscription to report changes.
+ *
+ * Changes are collected until the listener's executor gets round to
+ * delivering them, then handed over as a single ReportChange, so a burst
+ * of reports costs the listener one update.
+ */
+public class ReportSubscription {
+    private final ReportListener listener;
+    private final Executor executor;
+    private final Collection<ReportSubscription> owner;
+    private final List<Report> added = new ArrayList<>();
+    private boolean scheduled;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a subscription
+     *
+     * @param listener told about each batch of changes
+     * @param executor runs the listener, such as Platform::runLater
+     * @param owner    the publisher's subscriptions, this one removes
+     *                 itself on cancel
+     */
+    ReportSubscription(ReportListener listener, Executor executor,
+                       Collection<ReportSubscription> owner) {
+        this.listener = listener;
+        this.executor = executor;
+        this.owner = owner;
+    }
+
+    /**
+     * Stops delivering changes. Changes not yet delivered are dropped.
+     */
+    public void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+            owner.remove(this);
+        }
+    }
+
+    /**
+     * Records an added report, scheduling delivery if none is pending
+     *
+     * @param report the added report
+     */
+    synchronized void reportAdded(Report report) {
+        added.add(report);
+        schedule();
+    }
+
+    /**
+     * Asks the executor to deliver the pending changes, once per batch
+     */
+    private void schedule() {
+        if (!scheduled && !cancelled) {
+            scheduled = true;
+            executor.execute(this::deliver);
+        }
+    }
+
+    /**
+     * Hands every change collected so far to the listener
+     */
+    private void deliver() {
+        ReportChange change;
+        synchronized (this) {
+            scheduled = false;
+            if (cancelled || added.isEmpty()) {
+                return;
+            }
+            change = new ReportChange(new ArrayList<>(added));
+            added.clear();
+        }
+        listener.reportsChanged(change);
+    }
+}
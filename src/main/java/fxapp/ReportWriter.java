@@ -0,0 +1,241 @@
+package fxapp;
+
+import model.PurityReport;
+import model.Report;
+import model.SourceReport;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists reports on a background thread so callers never wait on an
+ * SQLite commit. Queued reports are written in batches, each batch in a
+ * single transaction (group commit).
+ */
+public class ReportWriter {
+    private final DatabaseManager db;
+    private final BlockingQueue<Report> queue;
+    private final int maxBatch;
+    private final DurabilityListener listener;
+    private final Thread thread;
+    private final Thread shutdownHook;
+    private volatile boolean running = true;
+
+    private final Object flushLock = new Object();
+    private long submitted;
+    private long completed;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalCommitNanos = new AtomicLong();
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+
+    /**
+     * Starts a writer thread
+     *
+     * @param db       database to write reports to
+     * @param capacity how many reports may wait in the queue before
+     *                 submit blocks
+     * @param maxBatch most reports committed in one transaction
+     * @param listener told when each batch is durable or has failed,
+     *                 called on the writer thread; may be null
+     */
+    public ReportWriter(DatabaseManager db, int capacity, int maxBatch,
+                        DurabilityListener listener) {
+        this.db = db;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.listener = listener;
+        thread = new Thread(this::run, "report-writer");
+        thread.setDaemon(true);
+        thread.start();
+        shutdownHook = new Thread(this::close, "report-writer-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Queues a report to be stored, blocking while the queue is full.
+     *
+     * @param report the report to store
+     * @throws IllegalStateException if the writer has been closed
+     */
+    public void submit(Report report) {
+        synchronized (flushLock) {
+            if (!running) {
+                throw new IllegalStateException("Report writer is closed");
+            }
+            submitted++;
+        }
+        try {
+            queue.put(report);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            markCompleted(1);
+            throw new IllegalStateException("Interrupted queueing " + report);
+        }
+    }
+
+    /**
+     * Blocks until every report submitted so far has been committed or
+     * has failed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+        synchronized (flushLock) {
+            long target = submitted;
+            while (completed < target) {
+                flushLock.wait();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting reports, writes out everything still queued and
+     * stops the writer thread. Safe to call more than once.
+     */
+    public void close() {
+        synchronized (flushLock) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // already shutting down, the hook is what called us
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot of the writer's counters.
+     *
+     * @return the current writer metrics
+     */
+    public WriterMetrics getMetrics() {
+        return new WriterMetrics(queue.size(), batches.get(), written.get(),
+                failed.get(), totalCommitNanos.get(), maxCommitNanos.get());
+    }
+
+    /**
+     * Writer thread loop: waits for a report, drains whatever else is
+     * queued up to the batch size, and commits the batch. After close it
+     * keeps going until every submitted report has been handled.
+     */
+    private void run() {
+        List<Report> batch = new ArrayList<>(maxBatch);
+        while (running || hasPending()) {
+            try {
+                Report first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Stores a batch of reports in one transaction and notifies the
+     * listener of the outcome.
+     *
+     * @param batch the reports to store
+     */
+    private void commit(List<Report> batch) {
+        List<SourceReport> sources = new ArrayList<>();
+        List<PurityReport> purities = new ArrayList<>();
+        for (Report r : batch) {
+            if (r instanceof SourceReport) {
+                sources.add((SourceReport) r);
+            } else if (r instanceof PurityReport) {
+                purities.add((PurityReport) r);
+            }
+        }
+        long start = System.nanoTime();
+        try {
+            db.inTransaction(conn -> {
+                if (!sources.isEmpty()) {
+                    db.getPersistence(SourceReport.class).storeAll(sources);
+                }
+                if (!purities.isEmpty()) {
+                    db.getPersistence(PurityReport.class).storeAll(purities);
+                }
+            });
+            long elapsed = System.nanoTime() - start;
+            batches.incrementAndGet();
+            written.addAndGet(batch.size());
+            totalCommitNanos.addAndGet(elapsed);
+            maxCommitNanos.accumulateAndGet(elapsed, Math::max);
+            if (listener != null) {
+                listener.reportsDurable(new ArrayList<>(batch));
+            }
+        } catch (SQLException | RuntimeException e) {
+            failed.addAndGet(batch.size());
+            if (listener != null) {
+                listener.reportsFailed(new ArrayList<>(batch), e);
+            } else {
+                e.printStackTrace();
+            }
+        } finally {
+            markCompleted(batch.size());
+        }
+    }
+
+    /**
+     * Checks whether any submitted report has not been handled yet.
+     * @return true if reports are still queued or being queued
+     */
+    private boolean hasPending() {
+        synchronized (flushLock) {
+            return completed < submitted;
+        }
+    }
+
+    /**
+     * Counts reports as finished and wakes any flush waiting on them.
+     * @param count number of reports finished
+     */
+    private void markCompleted(int count) {
+        synchronized (flushLock) {
+            completed += count;
+            flushLock.notifyAll();
+        }
+    }
+
+    public interface DurabilityListener {
+
+        /**
+         * Called once a batch of reports has been committed to disk
+         *
+         * @param reports the committed reports
+         */
+        void reportsDurable(List<Report> reports);
+
+        /**
+         * Called when a batch of reports could not be committed
+         *
+         * @param reports the reports that were not stored
+         * @param cause   why the commit failed
+         */
+        void reportsFailed(List<Report> reports, Exception cause);
+    }
+}
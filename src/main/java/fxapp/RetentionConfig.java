@@ -0,0 +1,68 @@
+package fxapp;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings for how much report history the ReportManager keeps in
+ * memory. Reports created within the hot window are loaded and indexed
+ * in memory; older ones stay in the database and are read on demand.
+ * A window of zero keeps every report in memory.
+ */
+public class RetentionConfig {
+    private long hotWindowMillis = TimeUnit.DAYS.toMillis(
+            Long.getLong("cleanwater.hotDays", 0));
+    private int coldCacheSize = Integer.getInteger("cleanwater.coldCache",
+            4096);
+
+    /**
+     * gets how far back reports are kept in memory
+     * @return hot window in milliseconds, 0 to keep everything
+     */
+    public long getHotWindowMillis() {
+        return hotWindowMillis;
+    }
+
+    /**
+     * sets how far back reports are kept in memory. The default is read
+     * from the cleanwater.hotDays system property, or 0.
+     * @param hotWindowMillis new hot window in milliseconds, 0 to keep
+     *                        everything
+     */
+    public void setHotWindowMillis(long hotWindowMillis) {
+        if (hotWindowMillis < 0) {
+            throw new IllegalArgumentException("Hot window cannot be "
+                    + "negative");
+        }
+        this.hotWindowMillis = hotWindowMillis;
+    }
+
+    /**
+     * gets how many older reports are cached after being read
+     * @return cold cache capacity per report type
+     */
+    public int getColdCacheSize() {
+        return coldCacheSize;
+    }
+
+    /**
+     * sets how many older reports are cached after being read. The
+     * default is read from the cleanwater.coldCache system property, or
+     * 4096.
+     * @param coldCacheSize new capacity per report type
+     */
+    public void setColdCacheSize(int coldCacheSize) {
+        if (coldCacheSize < 0) {
+            throw new IllegalArgumentException("Cache size cannot be "
+                    + "negative");
+        }
+        this.coldCacheSize = coldCacheSize;
+    }
+
+    /**
+     * checks whether older reports are left in the database
+     * @return true if there is a hot window
+     */
+    public boolean isTiered() {
+        return hotWindowMillis > 0;
+    }
+}
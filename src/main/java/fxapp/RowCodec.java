@@ -0,0 +1,32 @@
+package fxapp;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads a model from a row by column position rather than by name.
+ * Persistent looks the codec's columns up once per query and hands the
+ * positions to every call to read, so no row pays for a name lookup.
+ *
+ * @param <M> the model the codec reads
+ */
+public interface RowCodec<M> {
+
+    /**
+     * Gets the names of the columns the codec reads, in the order read
+     * expects their positions.
+     *
+     * @return the column names
+     */
+    String[] columns();
+
+    /**
+     * Creates a model from the current row
+     *
+     * @param row      the row of data to instantiate
+     * @param ordinals the position of each of columns() in the row
+     * @return a model instantiated with the row data
+     * @throws SQLException exception
+     */
+    M read(ResultSet row, int[] ordinals) throws SQLException;
+}
@@ -0,0 +1,202 @@
+package fxapp;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Brings the database schema up to date by applying numbered migrations
+ * in order, recording each one in the schema_version table.
+ */
+public class SchemaMigrator {
+    private static final Logger LOGGER = Logger.getLogger("SchemaMigrator");
+    private static final int BACKFILL_CHUNK = 1000;
+
+    private final DatabaseManager db;
+    private final List<Migration> migrations = new ArrayList<>();
+    private int currentVersion;
+    private Thread backfillThread;
+
+    /**
+     * Creates a migrator with no migrations
+     *
+     * @param db the database to migrate
+     */
+    public SchemaMigrator(DatabaseManager db) {
+        this.db = db;
+    }
+
+    /**
+     * Adds a migration. Migrations are applied in version order no matter
+     * the order they are added in.
+     *
+     * @param migration the migration to add
+     */
+    public void add(Migration migration) {
+        migrations.add(migration);
+        migrations.sort(Comparator.comparingInt(Migration::getVersion));
+    }
+
+    /**
+     * Gets the newest schema version the migrations describe
+     *
+     * @return the latest version, or 0 with no migrations
+     */
+    public int getLatestVersion() {
+        return migrations.isEmpty() ? 0
+                : migrations.get(migrations.size() - 1).getVersion();
+    }
+
+    /**
+     * Gets the version the database is at
+     *
+     * @return the current schema version
+     */
+    public int getCurrentVersion() {
+        return currentVersion;
+    }
+
+    /**
+     * Applies every migration newer than the database's version.
+     *
+     * A fresh database has its tables created at the latest schema, so it
+     * is stamped with the latest version without running anything. A
+     * database from before versioning is taken to be at version 1.
+     *
+     * @param conn  the writer connection, inside the startup transaction
+     * @param fresh whether the database has none of the app's tables yet
+     * @throws SQLException if a migration fails
+     */
+    public void migrate(Connection conn, boolean fresh) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version ("
+                    + "version integer PRIMARY KEY, description string, "
+                    + "applied_at integer, backfill_rowid integer, "
+                    + "backfill_done integer);");
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT max(version) FROM schema_version")) {
+                currentVersion = rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+        if (currentVersion == 0) {
+            currentVersion = fresh ? getLatestVersion() : 1;
+            for (Migration m : migrations) {
+                if (m.getVersion() <= currentVersion) {
+                    record(conn, m, true);
+                }
+            }
+        }
+        for (Migration m : migrations) {
+            if (m.getVersion() > currentVersion) {
+                LOGGER.info("Migrating schema to version " + m.getVersion()
+                        + ": " + m.getDescription());
+                m.getStep().apply(conn);
+                record(conn, m, m.getBackfill() == null);
+                currentVersion = m.getVersion();
+            }
+        }
+    }
+
+    /**
+     * Starts a background thread running any unfinished backfills, one
+     * chunk per transaction, resuming where a previous run stopped.
+     */
+    public void startBackfills() {
+        backfillThread = new Thread(this::runBackfills, "schema-backfill");
+        backfillThread.setDaemon(true);
+        backfillThread.start();
+    }
+
+    /**
+     * Waits for the backfills started by startBackfills to finish.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitBackfills() throws InterruptedException {
+        if (backfillThread != null) {
+            backfillThread.join();
+        }
+    }
+
+    /**
+     * Runs each unfinished backfill to completion.
+     */
+    private void runBackfills() {
+        for (Migration m : migrations) {
+            if (m.getBackfill() == null) {
+                continue;
+            }
+            try {
+                long[] after = {progress(m)};
+                while (after[0] >= 0) {
+                    db.inTransaction(conn -> {
+                        long last = m.getBackfill().run(conn, after[0],
+                                BACKFILL_CHUNK);
+                        try (PreparedStatement ps = conn.prepareStatement(
+                                "UPDATE schema_version SET backfill_rowid=(?),"
+                                + " backfill_done=(?) WHERE version=(?)")) {
+                            ps.setLong(1, Math.max(last, after[0]));
+                            ps.setInt(2, last < 0 ? 1 : 0);
+                            ps.setInt(3, m.getVersion());
+                            ps.executeUpdate();
+                        }
+                        after[0] = last;
+                    });
+                }
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Backfill for schema version "
+                        + m.getVersion() + " failed", e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets where a migration's backfill should resume.
+     *
+     * @param m the migration
+     * @return the last rowid handled, or -1 if the backfill is done
+     * @throws SQLException exception
+     */
+    private long progress(Migration m) throws SQLException {
+        try (Connection conn = db.getReadConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT "
+                     + "backfill_rowid, backfill_done FROM schema_version "
+                     + "WHERE version=(?)")) {
+            ps.setInt(1, m.getVersion());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(2) != 0) {
+                    return -1;
+                }
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * Records a migration as applied.
+     *
+     * @param conn         the writer connection
+     * @param m            the migration
+     * @param backfillDone whether there is nothing left to backfill
+     * @throws SQLException exception
+     */
+    private void record(Connection conn, Migration m, boolean backfillDone)
+            throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("INSERT OR IGNORE "
+                + "INTO schema_version VALUES ((?), (?), (?), 0, (?))")) {
+            ps.setInt(1, m.getVersion());
+            ps.setString(2, m.getDescription());
+            ps.setLong(3, System.currentTimeMillis());
+            ps.setInt(4, backfillDone ? 1 : 0);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package fxapp;
+
+import model.Location;
+import model.SourceReport;
+import model.WaterTerms;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+
+/**
+ * Reads source reports from the source_reports table by column position.
+ * Water types and conditions are read as dictionary codes.
+ */
+public class SourceReportCodec implements RowCodec<SourceReport> {
+    private static final String[] COLUMNS = {"id", "latitude", "longitude",
+        "water_type_id", "water_condition_id", "datetime", "water_type",
+        "water_condition"};
+
+    @Override
+    public String[] columns() {
+        return COLUMNS;
+    }
+
+    @Override
+    public SourceReport read(ResultSet row, int[] ordinals)
+            throws SQLException {
+        return new SourceReport(
+                row.getInt(ordinals[0]),
+                new Location(row.getDouble(ordinals[1]),
+                        row.getDouble(ordinals[2])),
+                term(row, ordinals[3], ordinals[6]),
+                term(row, ordinals[4], ordinals[7]),
+                new Date(row.getLong(ordinals[5])));
+    }
+
+    /**
+     * Reads a water term from its code column, or from the old string
+     * column for rows the migration has not encoded yet
+     *
+     * @param row           the current row
+     * @param codeOrdinal   position of the code column
+     * @param stringOrdinal position of the string column
+     * @return the term, the dictionary's shared instance for a code
+     * @throws SQLException exception
+     */
+    static String term(ResultSet row, int codeOrdinal, int stringOrdinal)
+            throws SQLException {
+        int code = row.getInt(codeOrdinal);
+        if (row.wasNull()) {
+            return row.getString(stringOrdinal);
+        }
+        return WaterTerms.decode(code);
+    }
+}
@@ -0,0 +1,212 @@
+package fxapp;
+
+import model.GeoBox;
+import model.Location;
+import model.Report;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * An in-memory index of reports by location. The globe is cut into
+ * cells of equal latitude and longitude span and each report is kept in
+ * the cell holding its location, so a region query only looks at the
+ * cells overlapping the region.
+ *
+ * @param <R> the kind of report indexed
+ */
+public class SpatialGrid<R extends Report> {
+    private final double cellDegrees;
+    private final int rows;
+    private final int cols;
+    private final Map<Integer, List<R>> cells = new HashMap<>();
+    private int size;
+
+    /**
+     * Creates an empty grid
+     *
+     * @param cellDegrees width and height of each cell in degrees
+     */
+    public SpatialGrid(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+        this.rows = (int) Math.ceil(180 / cellDegrees);
+        this.cols = (int) Math.ceil(360 / cellDegrees);
+    }
+
+    /**
+     * Adds a report to the cell holding its location
+     *
+     * @param report the report to add
+     */
+    public void add(R report) {
+        Location l = report.getLocation();
+        cells.computeIfAbsent(cell(row(l.getLatitude()), col(l.getLongitude())),
+                k -> new ArrayList<>()).add(report);
+        size++;
+    }
+
+    /**
+     * Gets the number of reports in the grid
+     *
+     * @return the number of reports
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Passes every report inside a box to an action. A box crossing the
+     * antimeridian is searched as its eastern and western halves.
+     *
+     * @param box    the region to search
+     * @param action called with each report inside the box
+     */
+    public void forEachWithin(GeoBox box, Consumer<? super R> action) {
+        forEachCell(box, reports -> scanCell(box, reports, action));
+    }
+
+    /**
+     * Estimates how many reports are inside a box by adding up the
+     * reports in the cells it touches, without checking each report.
+     *
+     * @param box the region
+     * @return an upper bound on the number of reports inside the box
+     */
+    public int estimate(GeoBox box) {
+        int[] count = new int[1];
+        forEachCell(box, reports -> count[0] += reports.size());
+        return count[0];
+    }
+
+    /**
+     * Passes the reports of each occupied cell a box touches to an
+     * action. A box crossing the antimeridian is visited as its eastern
+     * and western halves.
+     *
+     * @param box   the region
+     * @param visit called with the reports of each cell
+     */
+    private void forEachCell(GeoBox box, Consumer<List<R>> visit) {
+        int rowMin = row(box.getLatMin());
+        int rowMax = row(box.getLatMax());
+        int colMin = col(box.getLonMin());
+        int colMax = col(box.getLonMax());
+        if (box.crossesAntimeridian() && colMin <= colMax) {
+            // both edges in one column, the box wraps almost all the way
+            scan(rowMin, rowMax, 0, cols - 1, visit);
+        } else if (box.crossesAntimeridian()) {
+            scan(rowMin, rowMax, colMin, cols - 1, visit);
+            scan(rowMin, rowMax, 0, colMax, visit);
+        } else {
+            scan(rowMin, rowMax, colMin, colMax, visit);
+        }
+    }
+
+    /**
+     * Passes every report within a distance of a center to an action.
+     *
+     * @param center   center of the search
+     * @param radiusKm how far from the center to search, in kilometers
+     * @param action   called with each report within the distance
+     */
+    public void forEachNear(Location center, double radiusKm,
+                            Consumer<? super R> action) {
+        forEachWithin(GeoBox.around(center, radiusKm), r -> {
+            if (center.distanceTo(r.getLocation()) <= radiusKm) {
+                action.accept(r);
+            }
+        });
+    }
+
+    /**
+     * Visits the occupied cells in a block of cells. When the block has
+     * more cells than are occupied, walks the occupied cells instead so
+     * huge boxes over a sparse grid stay cheap.
+     *
+     * @param rowMin first row
+     * @param rowMax last row
+     * @param colMin first column
+     * @param colMax last column
+     * @param visit  called with the reports of each occupied cell
+     */
+    private void scan(int rowMin, int rowMax, int colMin, int colMax,
+                      Consumer<List<R>> visit) {
+        long area = (long) (rowMax - rowMin + 1) * (colMax - colMin + 1);
+        if (area > cells.size()) {
+            for (Map.Entry<Integer, List<R>> e : cells.entrySet()) {
+                int row = e.getKey() / cols;
+                int col = e.getKey() % cols;
+                if (row >= rowMin && row <= rowMax
+                        && col >= colMin && col <= colMax) {
+                    visit.accept(e.getValue());
+                }
+            }
+            return;
+        }
+        for (int row = rowMin; row <= rowMax; row++) {
+            for (int col = colMin; col <= colMax; col++) {
+                List<R> reports = cells.get(cell(row, col));
+                if (reports != null) {
+                    visit.accept(reports);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks each report of one cell against the box.
+     *
+     * @param box     the box to test reports against
+     * @param reports the reports in the cell
+     * @param action  called with each report inside the box
+     */
+    private void scanCell(GeoBox box, List<R> reports,
+                          Consumer<? super R> action) {
+        for (R r : reports) {
+            if (box.contains(r.getLocation())) {
+                action.accept(r);
+            }
+        }
+    }
+
+    /**
+     * Gets the row for a latitude, the north pole falls in the last row
+     * @param lat the latitude
+     * @return the row index
+     */
+    private int row(double lat) {
+        return clamp((int) Math.floor((lat + 90) / cellDegrees), rows);
+    }
+
+    /**
+     * Gets the column for a longitude, 180 falls in the last column
+     * @param lon the longitude
+     * @return the column index
+     */
+    private int col(double lon) {
+        return clamp((int) Math.floor((lon + 180) / cellDegrees), cols);
+    }
+
+    /**
+     * Keeps an index within 0 and count - 1
+     * @param i     the index
+     * @param count number of rows or columns
+     * @return the clamped index
+     */
+    private static int clamp(int i, int count) {
+        return Math.max(0, Math.min(count - 1, i));
+    }
+
+    /**
+     * Gets the key of a cell
+     * @param row the cell's row
+     * @param col the cell's column
+     * @return the key
+     */
+    private int cell(int row, int col) {
+        return row * cols + col;
+    }
+}
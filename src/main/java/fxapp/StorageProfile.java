@@ -0,0 +1,87 @@
+package fxapp;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * SQLite pragma settings applied to every pooled connection. All
+ * profiles use write-ahead logging so readers never wait on a writer;
+ * they differ in how much durability they trade for write speed.
+ */
+public enum StorageProfile {
+    /**
+     * Syncs the log on every commit, nothing committed is ever lost.
+     */
+    DURABLE("durable", "FULL", -8000, 0, "DEFAULT", 5000),
+    /**
+     * Syncs at checkpoints only, a power cut may lose the last commits
+     * but never corrupts the database.
+     */
+    BALANCED("balanced", "NORMAL", -16000, 64L << 20, "MEMORY", 5000),
+    /**
+     * Leaves syncing to the OS, for loading large batches that can be
+     * replayed if the machine crashes.
+     */
+    BULK_INGEST("bulk-ingest", "OFF", -64000, 256L << 20, "MEMORY", 30000);
+
+    private final String name;
+    private final String synchronous;
+    private final int cacheSize;
+    private final long mmapSize;
+    private final String tempStore;
+    private final int busyTimeoutMillis;
+
+    /**
+     * initializes storage profile
+     * @param name              name used in configuration
+     * @param synchronous       synchronous pragma level
+     * @param cacheSize         cache_size pragma, negative means KiB
+     * @param mmapSize          bytes of the file to memory map
+     * @param tempStore         where temporary tables live
+     * @param busyTimeoutMillis how long to wait on a locked database
+     */
+    StorageProfile(String name, String synchronous, int cacheSize,
+                   long mmapSize, String tempStore, int busyTimeoutMillis) {
+        this.name = name;
+        this.synchronous = synchronous;
+        this.cacheSize = cacheSize;
+        this.mmapSize = mmapSize;
+        this.tempStore = tempStore;
+        this.busyTimeoutMillis = busyTimeoutMillis;
+    }
+
+    /**
+     * Applies the profile's pragmas to a newly opened connection
+     * @param conn the connection
+     * @throws SQLException if a pragma is rejected
+     */
+    public void apply(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMillis);
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA synchronous = " + synchronous);
+            stmt.execute("PRAGMA cache_size = " + cacheSize);
+            stmt.execute("PRAGMA mmap_size = " + mmapSize);
+            stmt.execute("PRAGMA temp_store = " + tempStore);
+        }
+    }
+
+    /**
+     * Returns the profile with the given configuration name
+     * @param name "durable", "balanced" or "bulk-ingest"
+     * @return the matching profile
+     */
+    public static StorageProfile fromName(String name) {
+        for (StorageProfile p : values()) {
+            if (p.name.equalsIgnoreCase(name)) {
+                return p;
+            }
+        }
+        throw new IllegalArgumentException("No storage profile " + name);
+    }
+
+    public String toString() {
+        return name;
+    }
+}
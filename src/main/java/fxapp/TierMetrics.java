@@ -0,0 +1,93 @@
+package fxapp;
+
+/**
+ * A point-in-time snapshot of where the ReportManager's query results
+ * came from: the in-memory hot tier, or the database-backed cold tier
+ * and its cache.
+ */
+public class TierMetrics {
+    private final int hotReports;
+    private final int cachedReports;
+    private final long hotHits;
+    private final long coldCacheHits;
+    private final long coldMisses;
+    private final long coldQueries;
+
+    /**
+     * Creates a snapshot of the tier counters
+     *
+     * @param hotReports    reports held in memory
+     * @param cachedReports cold reports held in the cache
+     * @param hotHits       query results served from memory
+     * @param coldCacheHits cold results that were already cached
+     * @param coldMisses    cold results that were not cached
+     * @param coldQueries   database queries run for the cold tier
+     */
+    TierMetrics(int hotReports, int cachedReports, long hotHits,
+                long coldCacheHits, long coldMisses, long coldQueries) {
+        this.hotReports = hotReports;
+        this.cachedReports = cachedReports;
+        this.hotHits = hotHits;
+        this.coldCacheHits = coldCacheHits;
+        this.coldMisses = coldMisses;
+        this.coldQueries = coldQueries;
+    }
+
+    /**
+     * gets the number of reports held in memory
+     * @return hot reports
+     */
+    public int getHotReports() {
+        return hotReports;
+    }
+
+    /**
+     * gets the number of cold reports held in the cache
+     * @return cached reports
+     */
+    public int getCachedReports() {
+        return cachedReports;
+    }
+
+    /**
+     * gets the number of query results served from memory
+     * @return hot tier hits
+     */
+    public long getHotHits() {
+        return hotHits;
+    }
+
+    /**
+     * gets the number of cold query results that were already cached
+     * @return cold cache hits
+     */
+    public long getColdCacheHits() {
+        return coldCacheHits;
+    }
+
+    /**
+     * gets the number of cold query results that were not cached
+     * @return cold cache misses
+     */
+    public long getColdMisses() {
+        return coldMisses;
+    }
+
+    /**
+     * gets the number of database queries run for the cold tier
+     * @return cold queries
+     */
+    public long getColdQueries() {
+        return coldQueries;
+    }
+
+    /**
+     * converts metrics to string
+     * @return generated string
+     */
+    public String toString() {
+        return String.format("hot=%d cached=%d hotHits=%d coldCacheHits=%d "
+                + "coldMisses=%d coldQueries=%d", hotReports, cachedReports,
+                hotHits, coldCacheHits, coldMisses, coldQueries);
+    }
+}
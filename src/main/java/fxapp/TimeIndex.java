@@ -0,0 +1,135 @@
+package fxapp;
+
+import model.Report;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An in-memory index of reports by creation time. Reports are kept in
+ * two parallel arrays, their creation times in epoch milliseconds and
+ * the reports themselves, both sorted by time, so a time range is found
+ * with two binary searches.
+ *
+ * Reports usually arrive newest last and are appended; a report that
+ * arrives out of order is inserted in its place.
+ *
+ * @param <R> the kind of report indexed
+ */
+public class TimeIndex<R extends Report> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] times = new long[INITIAL_CAPACITY];
+    private Report[] reports = new Report[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Adds a report after any reports created at the same time
+     *
+     * @param report the report to add
+     */
+    public void add(R report) {
+        long time = report.getCreationDatetime().getTime();
+        if (size == times.length) {
+            int capacity = times.length * 2;
+            times = Arrays.copyOf(times, capacity);
+            reports = Arrays.copyOf(reports, capacity);
+        }
+        int i = (size == 0 || times[size - 1] <= time)
+                ? size : upperBound(time);
+        System.arraycopy(times, i, times, i + 1, size - i);
+        System.arraycopy(reports, i, reports, i + 1, size - i);
+        times[i] = time;
+        reports[i] = report;
+        size++;
+    }
+
+    /**
+     * Gets the number of reports in the index
+     *
+     * @return the number of reports
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Passes the reports created in a time range to an action, oldest
+     * first
+     *
+     * @param from   start of the range in epoch milliseconds, inclusive
+     * @param to     end of the range in epoch milliseconds, exclusive
+     * @param action called with each report in the range
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachBetween(long from, long to,
+                               Consumer<? super R> action) {
+        for (int i = lowerBound(from), end = lowerBound(to); i < end; i++) {
+            action.accept((R) reports[i]);
+        }
+    }
+
+    /**
+     * Counts the reports created in a time range
+     *
+     * @param from start of the range in epoch milliseconds, inclusive
+     * @param to   end of the range in epoch milliseconds, exclusive
+     * @return the number of reports in the range
+     */
+    public int count(long from, long to) {
+        return Math.max(0, lowerBound(to) - lowerBound(from));
+    }
+
+    /**
+     * Gets the reports created in a time range, oldest first
+     *
+     * @param from start of the range in epoch milliseconds, inclusive
+     * @param to   end of the range in epoch milliseconds, exclusive
+     * @return the reports in the range
+     */
+    public List<R> between(long from, long to) {
+        List<R> found = new ArrayList<>();
+        forEachBetween(from, to, found::add);
+        return found;
+    }
+
+    /**
+     * Finds the first position whose time is at least the given time
+     * @param time epoch milliseconds
+     * @return the position, or size if every time is earlier
+     */
+    private int lowerBound(long time) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Finds the first position whose time is after the given time
+     * @param time epoch milliseconds
+     * @return the position, or size if no time is later
+     */
+    private int upperBound(long time) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] <= time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
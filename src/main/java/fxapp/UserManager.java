@@ -72,26 +72,31 @@ public class UserManager {
 
 	/**
 	 * Bans the users with at given indices
-	 * @param userIndices the indices of the users to ban.
+	 * @param selectedUsers the users to ban or unban.
+	 * @param banned whether the users should be banned.
 	 */
 	public void setBannedStatus(ObservableList<User> selectedUsers, boolean banned) {
+		try {
+			db.getPersistence(User.class).updateAll(selectedUsers,
+					"banned", banned);
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
 		for (User u: selectedUsers) {
-			u.setBanned(banned);
+			u.applyBanned(banned);
 		}
 	}
 	
 	/**
 	 * Deletes the users with at given indices
-	 * @param userIndices the indices of the users to ban.
+	 * @param selectedUsers the users to delete.
 	 */
 	public void deleteUsers(ObservableList<User> selectedUsers) {
-        for (User u : selectedUsers) {
-			allUsers.remove(u);
-            try {
-                db.getPersistence(User.class).delete(u);
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+		allUsers.removeAll(selectedUsers);
+		try {
+			db.getPersistence(User.class).deleteAll(selectedUsers);
+		} catch (SQLException e) {
+			e.printStackTrace();
 		}
 	}
 }
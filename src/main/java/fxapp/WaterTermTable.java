@@ -0,0 +1,167 @@
+package fxapp;
+
+import model.WaterTerms;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * The water_terms lookup table behind WaterTerms. Reports store water
+ * types and conditions as small integer codes, and this table maps each
+ * code back to its string. The seeded terms are written with their fixed
+ * codes; any other term is added on first use and takes the next code.
+ */
+public class WaterTermTable {
+    private final DatabaseManager db;
+
+    /**
+     * Creates the table's manager, init must run before terms are resolved
+     *
+     * @param db database holding the lookup table
+     */
+    public WaterTermTable(DatabaseManager db) {
+        this.db = db;
+    }
+
+    /**
+     * Creates the water_terms table if it is missing, seeds it and loads
+     * every stored term into the WaterTerms dictionary.
+     *
+     * @param conn the writer connection
+     * @throws SQLException exception
+     */
+    void init(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS water_terms ("
+                    + "code integer PRIMARY KEY, term string UNIQUE)");
+        }
+        List<String> seeded = WaterTerms.seeded();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT OR IGNORE INTO water_terms (code, term) "
+                + "VALUES (?, ?)")) {
+            for (int i = 0; i < seeded.size(); i++) {
+                ps.setInt(1, i + 1);
+                ps.setString(2, seeded.get(i));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT code, term FROM water_terms")) {
+            while (rs.next()) {
+                WaterTerms.define(rs.getInt(1), rs.getString(2));
+            }
+        }
+    }
+
+    /**
+     * Gets the code of a term, adding the term to the table if it is new.
+     * Waits for the writer connection unless the caller already holds it.
+     *
+     * @param term the water type or condition
+     * @return the term's code
+     * @throws PersistenceException if the table cannot be updated
+     */
+    public int resolve(String term) {
+        int[] code = new int[1];
+        try {
+            db.inTransaction((Connection conn) -> {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT OR IGNORE INTO water_terms (term) "
+                        + "VALUES (?)")) {
+                    ps.setString(1, term);
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT code FROM water_terms WHERE term = ?")) {
+                    ps.setString(1, term);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        code[0] = rs.getInt(1);
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+        return code[0];
+    }
+
+    /**
+     * Builds the backfill that fills in the codes of one table's water
+     * term strings, for rows stored before the columns were encoded. The
+     * strings are left in place, so a database written by this version
+     * can still be opened by one that only reads them.
+     *
+     * @param table   the report table
+     * @param columns the string columns, each with an integer column of
+     *                the same name plus _id
+     * @return the backfill
+     */
+    Migration.Backfill backfill(String table, String... columns) {
+        StringBuilder distinct = new StringBuilder();
+        StringBuilder set = new StringBuilder();
+        StringBuilder pending = new StringBuilder();
+        for (String column : columns) {
+            if (distinct.length() > 0) {
+                distinct.append(" UNION ");
+                set.append(", ");
+                pending.append(" OR ");
+            }
+            distinct.append("SELECT ").append(column).append(" FROM ")
+                    .append(table).append(" WHERE rowid > ? AND rowid <= ?");
+            set.append(column).append("_id = coalesce(").append(column)
+                    .append("_id, (SELECT code FROM water_terms WHERE term = ")
+                    .append(table).append('.').append(column).append("))");
+            pending.append('(').append(column).append("_id IS NULL AND ")
+                    .append(column).append(" IS NOT NULL)");
+        }
+        String distinctSql = distinct.toString();
+        String updateSql = "UPDATE " + table + " SET " + set
+                + " WHERE rowid > ? AND rowid <= ? AND (" + pending + ")";
+        String boundSql = "SELECT max(rowid) FROM (SELECT rowid FROM "
+                + table + " WHERE rowid > ? ORDER BY rowid LIMIT ?)";
+        return (conn, afterRowid, chunkSize) -> {
+            long last;
+            try (PreparedStatement ps = conn.prepareStatement(boundSql)) {
+                ps.setLong(1, afterRowid);
+                ps.setInt(2, chunkSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return -1;
+                    }
+                    last = rs.getLong(1);
+                    if (rs.wasNull()) {
+                        return -1;
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(distinctSql)) {
+                for (int i = 0; i < columns.length; i++) {
+                    ps.setLong(2 * i + 1, afterRowid);
+                    ps.setLong(2 * i + 2, last);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String term = rs.getString(1);
+                        if (term != null) {
+                            resolve(term);
+                            WaterTerms.encode(term);
+                        }
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
+                ps.setLong(1, afterRowid);
+                ps.setLong(2, last);
+                ps.executeUpdate();
+            }
+            return last;
+        };
+    }
+}
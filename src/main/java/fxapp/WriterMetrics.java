@@ -0,0 +1,92 @@
+package fxapp;
+
+/**
+ * A point-in-time snapshot of the background report writer.
+ */
+public class WriterMetrics {
+    private final int queueDepth;
+    private final long batches;
+    private final long written;
+    private final long failed;
+    private final long totalCommitNanos;
+    private final long maxCommitNanos;
+
+    /**
+     * Creates a snapshot of the writer's counters
+     *
+     * @param queueDepth       reports waiting to be written
+     * @param batches          transactions committed
+     * @param written          reports committed
+     * @param failed           reports whose batch failed to commit
+     * @param totalCommitNanos time spent committing batches
+     * @param maxCommitNanos   slowest single batch commit
+     */
+    WriterMetrics(int queueDepth, long batches, long written, long failed,
+                  long totalCommitNanos, long maxCommitNanos) {
+        this.queueDepth = queueDepth;
+        this.batches = batches;
+        this.written = written;
+        this.failed = failed;
+        this.totalCommitNanos = totalCommitNanos;
+        this.maxCommitNanos = maxCommitNanos;
+    }
+
+    /**
+     * gets the number of reports waiting to be written
+     * @return queue depth
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * gets the number of batches committed
+     * @return committed batches
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * gets the number of reports committed
+     * @return committed reports
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * gets the number of reports whose batch failed to commit
+     * @return failed reports
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * gets the average time to commit a batch
+     * @return average commit latency in milliseconds
+     */
+    public double getAverageCommitMillis() {
+        return batches == 0 ? 0 : totalCommitNanos / 1e6 / batches;
+    }
+
+    /**
+     * gets the slowest batch commit
+     * @return longest commit latency in milliseconds
+     */
+    public double getMaxCommitMillis() {
+        return maxCommitNanos / 1e6;
+    }
+
+    /**
+     * converts metrics to string
+     * @return generated string
+     */
+    public String toString() {
+        return String.format("queued=%d batches=%d written=%d failed=%d "
+                + "avgCommit=%.3fms maxCommit=%.3fms", queueDepth, batches,
+                written, failed, getAverageCommitMillis(),
+                getMaxCommitMillis());
+    }
+}
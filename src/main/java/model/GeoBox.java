@@ -0,0 +1,136 @@
+package model;
+
+/**
+ * A latitude/longitude rectangle. A box whose minimum longitude is
+ * greater than its maximum crosses the antimeridian, so a box from 170 to
+ * -170 covers the 20 degrees around 180 rather than the 340 degrees
+ * between them.
+ */
+public class GeoBox {
+    private final double latMin;
+    private final double latMax;
+    private final double lonMin;
+    private final double lonMax;
+
+    /**
+     * initializes box
+     * @param latMin southern edge, -90 to 90
+     * @param latMax northern edge, -90 to 90
+     * @param lonMin western edge, -180 to 180
+     * @param lonMax eastern edge, -180 to 180
+     */
+    public GeoBox(double latMin, double latMax, double lonMin,
+                  double lonMax) {
+        if (latMin > latMax) {
+            throw new IllegalArgumentException("latMin is north of latMax");
+        }
+        this.latMin = Math.max(latMin, -90);
+        this.latMax = Math.min(latMax, 90);
+        this.lonMin = lonMin;
+        this.lonMax = lonMax;
+    }
+
+    /**
+     * Creates the smallest box holding every point within a distance of
+     * a center. A circle over a pole takes in every longitude.
+     *
+     * @param center   center of the circle
+     * @param radiusKm radius of the circle in kilometers
+     * @return the bounding box
+     */
+    public static GeoBox around(Location center, double radiusKm) {
+        double angle = radiusKm / Location.EARTH_RADIUS_KM;
+        double dLat = Math.toDegrees(angle);
+        double latMin = center.getLatitude() - dLat;
+        double latMax = center.getLatitude() + dLat;
+        if (latMin <= -90 || latMax >= 90 || angle >= Math.PI / 2) {
+            return new GeoBox(latMin, latMax, -180, 180);
+        }
+        double dLon = Math.toDegrees(Math.asin(Math.sin(angle)
+                / Math.cos(Math.toRadians(center.getLatitude()))));
+        return new GeoBox(latMin, latMax,
+                wrap(center.getLongitude() - dLon),
+                wrap(center.getLongitude() + dLon));
+    }
+
+    /**
+     * Brings a longitude back into -180 to 180
+     * @param lon the longitude
+     * @return the same meridian within range
+     */
+    private static double wrap(double lon) {
+        if (lon < -180) {
+            return lon + 360;
+        }
+        if (lon > 180) {
+            return lon - 360;
+        }
+        return lon;
+    }
+
+    /**
+     * checks whether a location is inside the box, edges included
+     * @param location the location
+     * @return true if the box contains the location
+     */
+    public boolean contains(Location location) {
+        double lat = location.getLatitude();
+        double lon = location.getLongitude();
+        if (lat < latMin || lat > latMax) {
+            return false;
+        }
+        if (crossesAntimeridian()) {
+            return lon >= lonMin || lon <= lonMax;
+        }
+        return lon >= lonMin && lon <= lonMax;
+    }
+
+    /**
+     * checks whether the box wraps around from 180 to -180
+     * @return true if the western edge is east of the eastern edge
+     */
+    public boolean crossesAntimeridian() {
+        return lonMin > lonMax;
+    }
+
+    /**
+     * gets southern edge
+     * @return minimum latitude
+     */
+    public double getLatMin() {
+        return latMin;
+    }
+
+    /**
+     * gets northern edge
+     * @return maximum latitude
+     */
+    public double getLatMax() {
+        return latMax;
+    }
+
+    /**
+     * gets western edge
+     * @return minimum longitude
+     */
+    public double getLonMin() {
+        return lonMin;
+    }
+
+    /**
+     * gets eastern edge
+     * @return maximum longitude
+     */
+    public double getLonMax() {
+        return lonMax;
+    }
+
+    /**
+     * converts box to string
+     * @return the generated string
+     */
+    public String toString() {
+        return String.format("[%s,%s]x[%s,%s]", latMin, latMax, lonMin,
+                lonMax);
+    }
+}
@@ -1,6 +1,9 @@
 package model;
 
 public class HistoricalData {
+    private static final int FIRST_YEAR = 1800;
+    private static final int LAST_YEAR = 2500;
+
     private double latMin;
     private double latMax;
     private double longMin;
@@ -123,5 +126,48 @@ public class HistoricalData {
     public void setContaminantType(String contaminantType) {
         this.contaminantType = contaminantType;
     }
-}
 
+    /**
+     * Checks that the data describes a region and year that can be
+     * graphed
+     * @return a message for the user saying what is wrong, or null if
+     *         the data is valid
+     */
+    public String validate() {
+        if (!inRange(latMin, 90) || !inRange(latMax, 90)
+                || !inRange(longMin, 180) || !inRange(longMax, 180)) {
+            return "coordinates outside range";
+        }
+        if (latMin > latMax || longMin > longMax) {
+            return "coordinates are in wrong order";
+        }
+        if (year > LAST_YEAR || year < FIRST_YEAR) {
+            return "Year outside of year range";
+        }
+        if (!"Virus PPM".equals(contaminantType)
+                && !"Contaminant PPM".equals(contaminantType)) {
+            return "select contaminant type";
+        }
+        return null;
+    }
+
+    /**
+     * Checks a coordinate is a number no further from zero than a limit
+     * @param value the coordinate
+     * @param limit the largest magnitude allowed
+     * @return true if the coordinate is within the limit
+     */
+    private static boolean inRange(double value, double limit) {
+        return value >= -limit && value <= limit;
+    }
+
+    /**
+     * gets the region to graph, validate first
+     * @return the box between the minimum and maximum coordinates
+     * @throws IllegalArgumentException if the minimum latitude is north
+     *                                  of the maximum
+     */
+    public GeoBox getRegion() {
+        return new GeoBox(latMin, latMax, longMin, longMax);
+    }
+}
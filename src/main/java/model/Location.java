@@ -4,6 +4,11 @@ import com.lynden.gmapsfx.javascript.object.LatLong;
 
 
 public class Location {
+    /**
+     * mean radius of the earth in kilometers
+     */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
     private final double latitude;
 
 
@@ -35,6 +40,23 @@ public class Location {
         return longitude;
     }
 
+    /**
+     * Gets the great-circle distance to another location, using the
+     * haversine formula
+     * @param other the other location
+     * @return distance in kilometers
+     */
+    public double distanceTo(Location other) {
+        double lat1 = Math.toRadians(latitude);
+        double lat2 = Math.toRadians(other.latitude);
+        double sinLat = Math.sin((lat2 - lat1) / 2);
+        double sinLon = Math.sin(Math.toRadians(other.longitude - longitude)
+                / 2);
+        double h = sinLat * sinLat
+                + Math.cos(lat1) * Math.cos(lat2) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
     /**
      * Converts location to latlong
      * @return the latlong
@@ -1,12 +1,16 @@
 package model;
 
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
 
 public class PurityReport extends Report {
     private final double virusPPM;
     private final double contaminantPPM;
-    private final String waterCondition;
-    private static int purityReportNum = 0;
+    private final short waterCondition;
+    private static final AtomicInteger purityReportNum = new AtomicInteger();
+    private static volatile IntSupplier idSource =
+            purityReportNum::incrementAndGet;
 
     /**
      * Creates a Purity Report
@@ -20,7 +24,7 @@ public class PurityReport extends Report {
                         double virusPPM,
                         double contaminantPPM,
                         String waterCondition) {
-        this(++purityReportNum, location, virusPPM,
+        this(idSource.getAsInt(), location, virusPPM,
                 contaminantPPM, waterCondition);
     }
 
@@ -53,8 +57,8 @@ public class PurityReport extends Report {
         super(num, location, creationDatetime);
         this.virusPPM = virusPPM;
         this.contaminantPPM = contaminantPPM;
-        this.waterCondition = waterCondition;
-        purityReportNum = Math.max(purityReportNum, num);
+        this.waterCondition = WaterTerms.encode(waterCondition);
+        purityReportNum.accumulateAndGet(num, Math::max);
     }
 
     /**
@@ -62,6 +66,14 @@ public class PurityReport extends Report {
      * @return condition of water
      */
     public String getWaterCondition() {
+        return WaterTerms.decode(waterCondition);
+    }
+
+    /**
+     * gets the dictionary code of the water condition
+     * @return condition code, see WaterTerms
+     */
+    public short getWaterConditionCode() {
         return waterCondition;
     }
 
@@ -90,4 +102,16 @@ public class PurityReport extends Report {
                 .format("Purity Report %s Virus PPM %s, Contaminant PPM %s",
                 super.toString(), virusPPM, contaminantPPM);
     }
+
+    /**
+     * Sets where new reports get their numbers from, such as an id
+     * allocator backed by the database. Until one is set, numbers come
+     * from an in-memory counter that follows the largest number seen.
+     *
+     * @param source supplies unique report numbers, or null to go back
+     *               to the in-memory counter
+     */
+    public static void setIdSource(IntSupplier source) {
+        idSource = (source == null) ? purityReportNum::incrementAndGet : source;
+    }
 }
@@ -1,12 +1,16 @@
 package model;
 
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
 
 public class SourceReport extends Report {
 
-    private final String waterType;
-    private final String waterCondition;
-    private static int sourceReportNum = 0;
+    private final short waterType;
+    private final short waterCondition;
+    private static final AtomicInteger sourceReportNum = new AtomicInteger();
+    private static volatile IntSupplier idSource =
+            sourceReportNum::incrementAndGet;
 
     /**
      * Creates a new Source Report
@@ -17,7 +21,7 @@ public class SourceReport extends Report {
      */
     public SourceReport(Location location, String waterType,
                         String waterCondition) {
-        this(++sourceReportNum, location, waterType, waterCondition);
+        this(idSource.getAsInt(), location, waterType, waterCondition);
     }
     
     /**
@@ -45,10 +49,10 @@ public class SourceReport extends Report {
     public SourceReport(int num, Location location, String waterType,
                         String waterCondition, Date creationDatetime) {
         super(num, location, creationDatetime);
-        this.waterType = waterType;
-        this.waterCondition = waterCondition;
+        this.waterType = WaterTerms.encode(waterType);
+        this.waterCondition = WaterTerms.encode(waterCondition);
 
-        sourceReportNum = Math.max(num, sourceReportNum);
+        sourceReportNum.accumulateAndGet(num, Math::max);
     }
 
     /**
@@ -57,6 +61,15 @@ public class SourceReport extends Report {
      * @return water type, as a string
      */
     public String getWaterType() {
+        return WaterTerms.decode(waterType);
+    }
+
+    /**
+     * Returns the dictionary code of the report's water type
+     *
+     * @return water type code, see WaterTerms
+     */
+    public short getWaterTypeCode() {
         return waterType;
     }
 
@@ -76,6 +89,27 @@ public class SourceReport extends Report {
      * @return condition, as a string
      */
     public String getWaterCondition() {
+        return WaterTerms.decode(waterCondition);
+    }
+
+    /**
+     * Returns the dictionary code of the report's water condition
+     *
+     * @return condition code, see WaterTerms
+     */
+    public short getWaterConditionCode() {
         return waterCondition;
     }
+
+    /**
+     * Sets where new reports get their numbers from, such as an id
+     * allocator backed by the database. Until one is set, numbers come
+     * from an in-memory counter that follows the largest number seen.
+     *
+     * @param source supplies unique report numbers, or null to go back
+     *               to the in-memory counter
+     */
+    public static void setIdSource(IntSupplier source) {
+        idSource = (source == null) ? sourceReportNum::incrementAndGet : source;
+    }
 }
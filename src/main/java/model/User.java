@@ -33,6 +33,14 @@ public class User {
         }
     }
 
+	/**
+	 * Sets the user's ban status without storing it,
+	 * for callers that store many users at once.
+	 */
+	public void applyBanned(boolean banned) {
+		this.banned = banned;
+	}
+
 	/**
 	 * Gets a human readable string
 	 * of the user for the admin user list.
@@ -0,0 +1,168 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * The dictionary of water type and condition strings. Each distinct
+ * string has a small code, so a report keeps a short instead of its own
+ * copy of the string, and filters compare codes instead of strings.
+ *
+ * The choices offered by the report screens are seeded in a fixed order,
+ * so their codes are the same in every run and every database. Any other
+ * string (such as "safe" in lower case) gets a code the first time it is
+ * seen, from the resolver if one is set and from the next free code
+ * otherwise.
+ */
+public final class WaterTerms {
+    /**
+     * The code of a missing (null) term
+     */
+    public static final short NONE = 0;
+
+    /**
+     * Water types offered when submitting a source report
+     */
+    public static final List<String> SOURCE_TYPES = Collections
+            .unmodifiableList(Arrays.asList("Bottled", "Well", "Stream",
+                    "Lake", "Spring", "Other"));
+
+    /**
+     * Water conditions offered when submitting a source report
+     */
+    public static final List<String> SOURCE_CONDITIONS = Collections
+            .unmodifiableList(Arrays.asList("Waste", "Treatable-Clear",
+                    "Treatable-Muddy", "Potable"));
+
+    /**
+     * Water conditions offered when submitting a purity report
+     */
+    public static final List<String> PURITY_CONDITIONS = Collections
+            .unmodifiableList(Arrays.asList("Safe", "Treatable", "Unsafe"));
+
+    private static final Map<String, Short> codes =
+            new ConcurrentHashMap<>();
+    private static volatile String[] terms = {null};
+    private static volatile ToIntFunction<String> resolver;
+
+    static {
+        for (String term : seeded()) {
+            define(terms.length, term);
+        }
+    }
+
+    private WaterTerms() {
+    }
+
+    /**
+     * Gets the terms seeded at startup, in code order starting from 1
+     *
+     * @return the seeded terms
+     */
+    public static List<String> seeded() {
+        List<String> seeded = new ArrayList<>(SOURCE_TYPES);
+        seeded.addAll(SOURCE_CONDITIONS);
+        seeded.addAll(PURITY_CONDITIONS);
+        return seeded;
+    }
+
+    /**
+     * Gets the code of a term, giving the term a code if it is new
+     *
+     * @param term the water type or condition, may be null
+     * @return the term's code, NONE for null
+     * @throws IllegalStateException if there are too many distinct terms
+     */
+    public static short encode(String term) {
+        if (term == null) {
+            return NONE;
+        }
+        Short code = codes.get(term);
+        if (code != null) {
+            return code;
+        }
+        // resolved outside the lock, the resolver may wait on the database
+        ToIntFunction<String> r = resolver;
+        int resolved = (r == null) ? -1 : r.applyAsInt(term);
+        synchronized (WaterTerms.class) {
+            code = codes.get(term);
+            if (code != null) {
+                return code;
+            }
+            return define(resolved < 0 ? terms.length : resolved, term);
+        }
+    }
+
+    /**
+     * Gets the code of a term without adding it
+     *
+     * @param term the water type or condition
+     * @return the term's code, or -1 if the term has never been seen
+     */
+    public static int find(String term) {
+        if (term == null) {
+            return NONE;
+        }
+        Short code = codes.get(term);
+        return (code == null) ? -1 : code;
+    }
+
+    /**
+     * Gets the term with a code. The same string instance is returned
+     * for every report with that code.
+     *
+     * @param code the term's code
+     * @return the term, or null for NONE or an unknown code
+     */
+    public static String decode(int code) {
+        String[] t = terms;
+        return (code > 0 && code < t.length) ? t[code] : null;
+    }
+
+    /**
+     * Binds a term to a code, such as one read from the database's
+     * lookup table. Load the table before creating reports, a code
+     * already in use by another term is rebound and the old term loses
+     * it.
+     *
+     * @param code the code, above NONE
+     * @param term the term
+     * @return the code, as a short
+     * @throws IllegalStateException if the code does not fit in a short
+     */
+    public static synchronized short define(int code, String term) {
+        if (code <= NONE || code > Short.MAX_VALUE) {
+            throw new IllegalStateException("No room for water term "
+                    + term + " at code " + code);
+        }
+        String[] t = terms;
+        if (code >= t.length) {
+            t = Arrays.copyOf(t, code + 1);
+        } else {
+            t = t.clone();
+        }
+        if (t[code] != null) {
+            codes.remove(t[code], (short) code);
+        }
+        t[code] = term;
+        codes.put(term, (short) code);
+        terms = t;
+        return (short) code;
+    }
+
+    /**
+     * Sets where new terms get their codes from, such as the database's
+     * lookup table, so codes agree with the stored reports.
+     *
+     * @param source gives the code for a term, adding it if it is new,
+     *               or null to number new terms in memory
+     */
+    public static void setResolver(ToIntFunction<String> source) {
+        resolver = source;
+    }
+}
@@ -0,0 +1,79 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+/**
+ * Timing helpers for the benchmark mains. They have no @Test methods,
+ * so the test task skips them; run one with its main method.
+ */
+class Benchmarks {
+    private static volatile Object sink;
+
+    /**
+     * Times a task, after warming it up
+     * @param warmups untimed runs first
+     * @param runs    timed runs
+     * @param task    the work, its result is kept so it is not optimized
+     *                away
+     * @return the median time of the timed runs, in milliseconds
+     * @throws Exception if the task fails
+     */
+    static double medianMillis(int warmups, int runs, Callable<?> task)
+            throws Exception {
+        for (int i = 0; i < warmups; i++) {
+            sink = task.call();
+        }
+        double[] times = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            sink = task.call();
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        return times[runs / 2];
+    }
+
+    /**
+     * Measures how many bytes one run of a task allocates on its thread,
+     * after warming it up
+     * @param warmups untimed runs first
+     * @param task    the work
+     * @return the bytes allocated by one run
+     * @throws Exception if the task fails
+     */
+    static long allocatedBytes(int warmups, Callable<?> task)
+            throws Exception {
+        for (int i = 0; i < warmups; i++) {
+            sink = task.call();
+        }
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean)
+                        ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        sink = task.call();
+        return threads.getThreadAllocatedBytes(id) - before;
+    }
+
+    /**
+     * Prints one allocation result line
+     * @param name  what was measured
+     * @param bytes the bytes one run allocates
+     * @param items how many items one run handles
+     */
+    static void reportBytes(String name, long bytes, int items) {
+        System.out.printf("%-36s %10.1f bytes/item%n", name,
+                (double) bytes / items);
+    }
+
+    /**
+     * Prints one result line
+     * @param name    what was measured
+     * @param millis  the median time
+     * @param items   how many items one run handles
+     */
+    static void report(String name, double millis, int items) {
+        System.out.printf("%-36s %10.2f ms %14.0f items/s%n", name, millis,
+                items / (millis / 1000));
+    }
+}
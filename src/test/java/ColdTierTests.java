@@ -0,0 +1,151 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fxapp.DatabaseManager;
+import fxapp.PersistenceException;
+import fxapp.ReportManager;
+import fxapp.ReportQuery;
+import fxapp.RetentionConfig;
+import model.GeoBox;
+import model.Location;
+import model.PurityReport;
+import model.Report;
+import model.SourceReport;
+
+public class ColdTierTests {
+    private static final int TIMEOUT = 10000;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final int COLD = 200;
+
+    private final long now = System.currentTimeMillis();
+    private File file;
+    private DatabaseManager db;
+    private ReportManager rm;
+
+    @Before
+    public void setUp() throws Exception {
+        file = TestDatabase.create();
+        db = TestDatabase.open(file);
+        List<SourceReport> sources = new ArrayList<>();
+        List<PurityReport> purities = new ArrayList<>();
+        for (int i = 1; i <= COLD; i++) {
+            sources.add(new SourceReport(i, new Location(10 + i * 0.01, 20),
+                    "Well", "Potable", new Date(now - 400 * DAY + i)));
+            purities.add(new PurityReport(i, new Location(10, 20 + i * 0.01),
+                    i % 100, 1, "Safe", new Date(now - 400 * DAY + i)));
+        }
+        sources.add(new SourceReport(COLD + 1, new Location(11, 21), "Lake",
+                "Waste", new Date(now - DAY)));
+        db.getPersistence(SourceReport.class).storeAll(sources);
+        db.getPersistence(PurityReport.class).storeAll(purities);
+
+        RetentionConfig retention = new RetentionConfig();
+        retention.setHotWindowMillis(30 * DAY);
+        retention.setColdCacheSize(1000);
+        rm = new ReportManager(db, retention);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        rm.close();
+        TestDatabase.close(db);
+        TestDatabase.delete(file);
+    }
+
+    /**
+     * Tests that only the hot window is loaded and that a viewport query
+     * with a limit reads no more cold reports than the limit.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testViewportReadsLimitedColdRows() {
+        Assert.assertEquals(1, rm.getTierMetrics().getHotReports());
+        List<Report> found = rm.find(ReportQuery.builder()
+                .within(new GeoBox(9, 13, 19, 23))
+                .orderBy(ReportQuery.Order.NEWEST_FIRST).limit(10).build());
+        Assert.assertEquals(10, found.size());
+        Assert.assertEquals(COLD + 1, found.get(0).getReportNum());
+        for (int i = 1; i < found.size(); i++) {
+            Assert.assertFalse(found.get(i).getCreationDatetime()
+                    .after(found.get(i - 1).getCreationDatetime()));
+        }
+        Assert.assertTrue(rm.getTierMetrics().getCachedReports() <= 20);
+        Assert.assertEquals(2, rm.getTierMetrics().getColdQueries());
+    }
+
+    /**
+     * Tests that reading the same cold reports twice hands back the same
+     * instances, which the map keys its markers by.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testColdReportsKeepIdentity() {
+        ReportQuery query = ReportQuery.builder()
+                .within(new GeoBox(9, 10.5, 19, 20.5)).build();
+        List<Report> first = rm.find(query);
+        List<Report> second = rm.find(query);
+        Assert.assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            Assert.assertSame(first.get(i), second.get(i));
+        }
+        Assert.assertEquals(first.size(),
+                rm.getTierMetrics().getColdCacheHits());
+    }
+
+    /**
+     * Tests that time, region and nearest lookups merge both tiers.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testLookupsMergeTiers() {
+        List<Report> between = rm.reportsBetween(new Date(0), new Date(now))
+                .collect(Collectors.toList());
+        Assert.assertEquals(2 * COLD + 1, between.size());
+        Assert.assertEquals(COLD + 1,
+                between.get(between.size() - 1).getReportNum());
+
+        Assert.assertEquals(5, rm.reportsWithin(new GeoBox(11.955, 13, 19,
+                20.5)).count());
+        List<Report> nearest = rm.nearest(new Location(12, 20), 1, null);
+        Assert.assertEquals(COLD, nearest.get(0).getReportNum());
+        Assert.assertTrue(nearest.get(0) instanceof SourceReport);
+    }
+
+    /**
+     * Tests that a report dated before the hot window goes straight to
+     * the cold tier but is still found.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testOldReportGoesCold() {
+        rm.addSourceReport(new SourceReport(COLD + 2,
+                new Location(-30, -60), "Well", "Potable",
+                new Date(now - 100 * DAY)));
+        Assert.assertEquals(1, rm.getTierMetrics().getHotReports());
+        List<Report> found = rm.find(ReportQuery.builder()
+                .within(new GeoBox(-31, -29, -61, -59)).build());
+        Assert.assertEquals(1, found.size());
+        Assert.assertEquals(COLD + 2, found.get(0).getReportNum());
+    }
+
+    /**
+     * Tests that a cold tier that cannot be read fails the query instead
+     * of returning only the hot reports.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testColdReadFailurePropagates() throws Exception {
+        TestDatabase.execute(file, "DROP TABLE purity_reports");
+        try {
+            rm.find(ReportQuery.builder()
+                    .between(new Date(0), new Date(now)).build());
+            Assert.fail("query should fail without the purity table");
+        } catch (PersistenceException e) {
+            Assert.assertNotNull(e.getCause());
+        }
+    }
+}
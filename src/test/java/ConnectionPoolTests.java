@@ -0,0 +1,249 @@
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fxapp.ConnectionPool;
+import fxapp.DatabaseConfig;
+
+public class ConnectionPoolTests {
+    private static final int TIMEOUT = 10000;
+
+    private File file;
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        file = TestDatabase.create();
+        DatabaseConfig config = TestDatabase.config(file);
+        config.setMaxReaders(2);
+        config.setAcquireTimeoutMillis(200);
+        config.setStatementCacheSize(2);
+        pool = new ConnectionPool(config);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+        TestDatabase.delete(file);
+    }
+
+    /**
+     * Tests that a second thread cannot lease the writer while the first
+     * holds it, and gets it once it is returned.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testWriterIsExclusive() throws Exception {
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread other = new Thread(() -> {
+            try (Connection conn = pool.acquireWriter()) {
+                failure.set(conn.isClosed()
+                        ? new SQLException("leased a closed writer") : null);
+            } catch (SQLException e) {
+                failure.set(e);
+            }
+        });
+        try (Connection conn = pool.acquireWriter()) {
+            Assert.assertFalse(conn.isClosed());
+            other.start();
+            other.join();
+        }
+        Assert.assertNotNull(failure.get());
+
+        Thread after = new Thread(() -> {
+            try (Connection conn = pool.acquireWriter()) {
+                failure.set(conn.isClosed()
+                        ? new SQLException("leased a closed writer") : null);
+            } catch (SQLException e) {
+                failure.set(e);
+            }
+        });
+        after.start();
+        after.join();
+        Assert.assertNull(failure.get());
+    }
+
+    /**
+     * Tests that the thread holding the writer can lease it again, and
+     * that the nested lease does not end the outer transaction.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testWriterIsReentrant() throws Exception {
+        try (Connection outer = pool.acquireWriter()) {
+            outer.setAutoCommit(false);
+            try (Connection inner = pool.acquireWriter()) {
+                Assert.assertFalse(inner.getAutoCommit());
+            }
+            Assert.assertFalse(outer.getAutoCommit());
+            outer.rollback();
+            outer.setAutoCommit(true);
+        }
+        Assert.assertEquals(0, pool.getMetrics().getActive());
+    }
+
+    /**
+     * Tests that readers are bounded, time out when all are leased, and
+     * are reused once returned.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testReadersAreBounded() throws Exception {
+        Connection first = pool.acquireReader();
+        Connection second = pool.acquireReader();
+        try {
+            pool.acquireReader();
+            Assert.fail("expected the third reader to time out");
+        } catch (SQLException e) {
+            // expected
+        }
+        second.close();
+        try (Connection third = pool.acquireReader()) {
+            Assert.assertFalse(third.isClosed());
+        }
+        first.close();
+        Assert.assertEquals(0, pool.getMetrics().getActive());
+        Assert.assertEquals(2, pool.getMetrics().getIdle());
+    }
+
+    /**
+     * Tests that statements a caller forgets to close are closed when
+     * the connection goes back to the pool.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testReleaseClosesLeftoverStatements() throws Exception {
+        Statement stmt;
+        PreparedStatement ps;
+        ResultSet rs;
+        try (Connection conn = pool.acquireReader()) {
+            stmt = conn.createStatement();
+            ps = conn.prepareStatement("select 1");
+            rs = ps.executeQuery();
+            Assert.assertTrue(rs.next());
+        }
+        Assert.assertTrue(stmt.isClosed());
+        Assert.assertTrue(ps.isClosed());
+        Assert.assertTrue(rs.isClosed());
+    }
+
+    /**
+     * Tests that statements cached on a connection outlive the lease and
+     * are handed out again on the next one.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testCachedStatementsSurviveRelease() throws Exception {
+        PreparedStatement cached;
+        try (Connection conn = pool.acquireWriter()) {
+            ConnectionPool.StatementCache cache =
+                    (ConnectionPool.StatementCache) conn;
+            Assert.assertFalse(cache.hasCachedStatement("select 1"));
+            cached = cache.cachedStatement("select 1",
+                    Statement.NO_GENERATED_KEYS);
+        }
+        Assert.assertFalse(cached.isClosed());
+        try (Connection conn = pool.acquireWriter()) {
+            ConnectionPool.StatementCache cache =
+                    (ConnectionPool.StatementCache) conn;
+            Assert.assertTrue(cache.hasCachedStatement("select 1"));
+            Assert.assertSame(cached, cache.cachedStatement("select 1",
+                    Statement.NO_GENERATED_KEYS));
+        }
+    }
+
+    /**
+     * Tests that the statement cache keeps the most recently used
+     * statements and closes the one it evicts.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testStatementCacheEvictsLeastRecentlyUsed()
+            throws Exception {
+        try (Connection conn = pool.acquireWriter()) {
+            ConnectionPool.StatementCache cache =
+                    (ConnectionPool.StatementCache) conn;
+            PreparedStatement one = cache.cachedStatement("select 1",
+                    Statement.NO_GENERATED_KEYS);
+            PreparedStatement two = cache.cachedStatement("select 2",
+                    Statement.NO_GENERATED_KEYS);
+            cache.cachedStatement("select 1", Statement.NO_GENERATED_KEYS);
+            cache.cachedStatement("select 3", Statement.NO_GENERATED_KEYS);
+            Assert.assertTrue(cache.hasCachedStatement("select 1"));
+            Assert.assertFalse(cache.hasCachedStatement("select 2"));
+            Assert.assertTrue(cache.hasCachedStatement("select 3"));
+            Assert.assertFalse(one.isClosed());
+            Assert.assertTrue(two.isClosed());
+        }
+    }
+
+    /**
+     * Tests that a cached statement whose execution fails is dropped from
+     * the cache, so the next lease gets a working one.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testFailedStatementLeavesCache() throws Exception {
+        String insert = "insert into t values (?)";
+        try (Connection conn = pool.acquireWriter()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("create table t(x integer unique)");
+            }
+            ConnectionPool.StatementCache cache =
+                    (ConnectionPool.StatementCache) conn;
+            PreparedStatement ps = cache.cachedStatement(insert,
+                    Statement.NO_GENERATED_KEYS);
+            ps.setInt(1, 1);
+            ps.executeUpdate();
+            try {
+                ps.setInt(1, 1);
+                ps.executeUpdate();
+                Assert.fail("expected the duplicate to be refused");
+            } catch (SQLException e) {
+                // expected
+            }
+            Assert.assertFalse(cache.hasCachedStatement(insert));
+            ps = cache.cachedStatement(insert, Statement.NO_GENERATED_KEYS);
+            ps.setInt(1, 2);
+            Assert.assertEquals(1, ps.executeUpdate());
+        }
+    }
+
+    /**
+     * Tests that a leased connection cannot be used after it is returned.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testReturnedConnectionIsUnusable() throws Exception {
+        Connection conn = pool.acquireReader();
+        conn.close();
+        Assert.assertTrue(conn.isClosed());
+        try {
+            conn.createStatement();
+            Assert.fail("expected the returned connection to refuse use");
+        } catch (SQLException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that a closed pool refuses new leases.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testClosedPoolRefusesLeases() throws Exception {
+        pool.close();
+        try {
+            pool.acquireReader();
+            Assert.fail("expected the closed pool to refuse a reader");
+        } catch (SQLException e) {
+            // expected
+        }
+        try {
+            pool.acquireWriter();
+            Assert.fail("expected the closed pool to refuse the writer");
+        } catch (SQLException e) {
+            // expected
+        }
+    }
+}
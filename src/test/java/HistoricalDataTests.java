@@ -0,0 +1,44 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.GeoBox;
+import model.HistoricalData;
+import model.Location;
+
+public class HistoricalDataTests {
+    private static final int TIMEOUT = 1000;
+
+    /**
+     * Tests that reversed, out of range and missing values are caught
+     * before a region is made from them.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testValidate() {
+        Assert.assertNull(new HistoricalData(-10, 10, -20, 20, 2016,
+                "Virus PPM").validate());
+        Assert.assertNotNull(new HistoricalData(10, -10, -20, 20, 2016,
+                "Virus PPM").validate());
+        Assert.assertNotNull(new HistoricalData(-10, 10, 20, -20, 2016,
+                "Virus PPM").validate());
+        Assert.assertNotNull(new HistoricalData(-10, 10, -200, 20, 2016,
+                "Virus PPM").validate());
+        Assert.assertNotNull(new HistoricalData(-10, Double.NaN, -20, 20,
+                2016, "Virus PPM").validate());
+        Assert.assertNotNull(new HistoricalData(-10, 10, -20, 20, 1700,
+                "Virus PPM").validate());
+        Assert.assertNotNull(new HistoricalData(-10, 10, -20, 20, 2016,
+                null).validate());
+    }
+
+    /**
+     * Tests that a valid region does not wrap around the globe.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testRegion() {
+        GeoBox box = new HistoricalData(-10, 10, -20, 20, 2016,
+                "Contaminant PPM").getRegion();
+        Assert.assertFalse(box.crossesAntimeridian());
+        Assert.assertTrue(box.contains(new Location(0, 0)));
+        Assert.assertFalse(box.contains(new Location(0, 180)));
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fxapp.DatabaseManager;
+import fxapp.Persistent;
+import model.Location;
+import model.SourceReport;
+
+public class IdAllocatorTests {
+    private static final int TIMEOUT = 10000;
+
+    private File file;
+    private DatabaseManager db;
+
+    @Before
+    public void setUp() throws Exception {
+        file = TestDatabase.create();
+        db = TestDatabase.open(file);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestDatabase.close(db);
+        TestDatabase.delete(file);
+    }
+
+    /**
+     * Closes the database and opens it again, as a restart would
+     * @throws Exception exception
+     */
+    private void restart() throws Exception {
+        TestDatabase.close(db);
+        db = null;
+        db = TestDatabase.open(file);
+    }
+
+    /**
+     * Makes new reports, numbered by the database's allocator
+     * @param count how many reports to make
+     * @return the reports
+     */
+    private static List<SourceReport> newReports(int count) {
+        List<SourceReport> reports = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            reports.add(new SourceReport(new Location(1, 1), "Well",
+                    "Potable"));
+        }
+        return reports;
+    }
+
+    /**
+     * Tests that reports stored before and after a restart all have
+     * different numbers, and that numbers keep going up.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testUniqueAcrossRestarts() throws Exception {
+        Set<Integer> ids = new HashSet<>();
+        int last = 0;
+        for (int run = 0; run < 3; run++) {
+            List<SourceReport> reports = newReports(150);
+            db.getPersistence(SourceReport.class).storeAll(reports);
+            for (SourceReport r : reports) {
+                Assert.assertTrue(ids.add(r.getReportNum()));
+                Assert.assertTrue(r.getReportNum() > last);
+                last = r.getReportNum();
+            }
+            restart();
+        }
+        Assert.assertEquals(450, db.getPersistence(SourceReport.class)
+                .retrieveAll().size());
+    }
+
+    /**
+     * Tests that numbers taken but never stored are not handed out again
+     * after a restart, since the reserved block outlives the process.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testUnstoredNumbersNotReused() throws Exception {
+        int taken = Collections.max(ids(newReports(10)));
+        restart();
+        for (int id : ids(newReports(10))) {
+            Assert.assertTrue(id > taken);
+        }
+    }
+
+    /**
+     * Tests that reports stored without the allocator, such as by an
+     * older version, are counted when a new database mark is seeded.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testSeedsFromStoredReports() throws Exception {
+        Persistent<SourceReport> p = db.getPersistence(SourceReport.class);
+        p.store(new SourceReport(5000, new Location(1, 1), "Well",
+                "Potable"));
+        TestDatabase.close(db);
+        db = null;
+        TestDatabase.execute(file, "DELETE FROM id_allocations");
+        db = TestDatabase.open(file);
+        for (int id : ids(newReports(10))) {
+            Assert.assertTrue(id > 5000);
+        }
+    }
+
+    /**
+     * Tests that threads taking numbers at once never share one.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testUniqueAcrossThreads() throws Exception {
+        Set<Integer> ids = Collections.synchronizedSet(new HashSet<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int id : ids(newReports(500))) {
+                    ids.add(id);
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        Assert.assertEquals(2000, ids.size());
+    }
+
+    /**
+     * Gets the numbers of reports
+     * @param reports the reports
+     * @return their numbers
+     */
+    private static List<Integer> ids(List<SourceReport> reports) {
+        List<Integer> ids = new ArrayList<>(reports.size());
+        for (SourceReport r : reports) {
+            ids.add(r.getReportNum());
+        }
+        return ids;
+    }
+}
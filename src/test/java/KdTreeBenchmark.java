@@ -0,0 +1,104 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import fxapp.KdTree;
+import model.Location;
+import model.PurityReport;
+import model.Report;
+
+/**
+ * Compares nearest-report lookups in the k-d tree against measuring the
+ * distance to every report.
+ */
+public class KdTreeBenchmark {
+    private static final int REPORTS = 1000000;
+    private static final int QUERIES = 200;
+    private static final int K = 10;
+
+    /**
+     * Makes reports spread evenly over the globe
+     * @param rand  random source
+     * @param count how many reports to make
+     * @return the reports
+     */
+    private static List<Report> randomReports(Random rand, int count) {
+        List<Report> reports = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double lat = Math.toDegrees(Math.asin(2 * rand.nextDouble() - 1));
+            double lon = 360 * rand.nextDouble() - 180;
+            reports.add(new PurityReport(i, new Location(lat, lon),
+                    rand.nextInt(100), 1, "safe"));
+        }
+        return reports;
+    }
+
+    /**
+     * Finds the closest reports by measuring the distance to every one
+     * @param reports the reports
+     * @param target  where to search from
+     * @return the k closest reports, in no particular order
+     */
+    private static List<Report> bruteForce(List<Report> reports,
+                                           Location target) {
+        PriorityQueue<double[]> best = new PriorityQueue<>(K,
+                Comparator.comparingDouble((double[] d) -> d[0]).reversed());
+        for (int i = 0; i < reports.size(); i++) {
+            double d = target.distanceTo(reports.get(i).getLocation());
+            if (best.size() < K) {
+                best.add(new double[] {d, i});
+            } else if (d < best.peek()[0]) {
+                best.poll();
+                best.add(new double[] {d, i});
+            }
+        }
+        List<Report> found = new ArrayList<>(K);
+        for (double[] d : best) {
+            found.add(reports.get((int) d[1]));
+        }
+        return found;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Random rand = new Random(16);
+        List<Report> reports = randomReports(rand, REPORTS);
+        List<Location> targets = new ArrayList<>(QUERIES);
+        for (Report r : randomReports(rand, QUERIES)) {
+            targets.add(r.getLocation());
+        }
+
+        double build = Benchmarks.medianMillis(2, 5,
+                () -> new KdTree<>(reports));
+        KdTree<Report> tree = new KdTree<>(reports);
+        double kd = Benchmarks.medianMillis(3, 9, () -> {
+            int found = 0;
+            for (Location t : targets) {
+                found += tree.nearest(t, K, null).size();
+            }
+            return found;
+        });
+        double brute = Benchmarks.medianMillis(0, 1, () -> {
+            int found = 0;
+            for (Location t : targets) {
+                found += bruteForce(reports, t).size();
+            }
+            return found;
+        });
+
+        List<Report> stacked = new ArrayList<>(REPORTS);
+        for (int i = 0; i < REPORTS; i++) {
+            stacked.add(new PurityReport(i, new Location(33.7, -84.4),
+                    i % 100, 1, "safe"));
+        }
+        double same = Benchmarks.medianMillis(2, 5,
+                () -> new KdTree<>(stacked));
+
+        Benchmarks.report("build, spread out", build, REPORTS);
+        Benchmarks.report("build, one location", same, REPORTS);
+        Benchmarks.report("nearest " + K + ", k-d tree", kd, QUERIES);
+        Benchmarks.report("nearest " + K + ", every report", brute,
+                QUERIES);
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fxapp.KdTree;
+import model.Location;
+import model.PurityReport;
+import model.Report;
+
+public class KdTreeTests {
+    private static final int TIMEOUT = 5000;
+    private static final int REPORTS = 10000;
+
+    private static List<Report> randomReports(Random rand, int count) {
+        List<Report> reports = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double lat = Math.toDegrees(Math.asin(2 * rand.nextDouble() - 1));
+            double lon = 360 * rand.nextDouble() - 180;
+            reports.add(new PurityReport(i, new Location(lat, lon),
+                    rand.nextInt(100), 1, "safe"));
+        }
+        return reports;
+    }
+
+    private static List<Double> bruteForce(List<Report> reports,
+            Location target, int k) {
+        return reports.stream()
+                .map(r -> target.distanceTo(r.getLocation()))
+                .sorted().limit(k).collect(Collectors.toList());
+    }
+
+    /**
+     * Tests that a balanced tree and an incrementally built tree find the
+     * same neighbours, at the same distances, as sorting every report.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testMatchesBruteForce() {
+        Random rand = new Random(16);
+        List<Report> reports = randomReports(rand, REPORTS);
+        KdTree<Report> built = new KdTree<>(reports);
+        KdTree<Report> grown = new KdTree<>();
+        reports.forEach(grown::add);
+        Assert.assertEquals(REPORTS, built.size());
+        Assert.assertEquals(REPORTS, grown.size());
+
+        for (int i = 0; i < 20; i++) {
+            Location target = randomReports(rand, 1).get(0).getLocation();
+            List<Double> expected = bruteForce(reports, target, 20);
+            for (KdTree<Report> tree : Arrays.asList(built, grown)) {
+                List<Report> actual = tree.nearest(target, 20, null);
+                Assert.assertEquals(expected.size(), actual.size());
+                for (int j = 0; j < expected.size(); j++) {
+                    Assert.assertEquals(expected.get(j),
+                            target.distanceTo(actual.get(j).getLocation()),
+                            1e-6);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that the filter is applied before the k closest are chosen
+     * and that neighbours are found across the antimeridian.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testFilterAndAntimeridian() {
+        KdTree<Report> tree = new KdTree<>();
+        tree.add(new PurityReport(1, new Location(0, 179.9), 5, 1, "safe"));
+        tree.add(new PurityReport(2, new Location(0, -179.8), 50, 1, "safe"));
+        tree.add(new PurityReport(3, new Location(0, 170), 50, 1, "safe"));
+        List<Report> found = tree.nearest(new Location(0, -179.9), 2,
+                r -> ((PurityReport) r).getVirusPPM() > 10);
+        Assert.assertEquals(2, found.size());
+        Assert.assertEquals(2, found.get(0).getReportNum());
+        Assert.assertEquals(3, found.get(1).getReportNum());
+    }
+
+    /**
+     * Tests that many reports at one place neither overflow the stack
+     * nor hide reports elsewhere, whether built at once or one by one.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testSameLocation() {
+        List<Report> reports = new ArrayList<>();
+        for (int i = 0; i < REPORTS; i++) {
+            reports.add(new PurityReport(i, new Location(33.7, -84.4),
+                    i % 100, 1, "safe"));
+        }
+        reports.add(new PurityReport(REPORTS, new Location(33.8, -84.4),
+                50, 1, "safe"));
+        KdTree<Report> built = new KdTree<>(reports);
+        KdTree<Report> grown = new KdTree<>();
+        reports.forEach(grown::add);
+
+        for (KdTree<Report> tree : Arrays.asList(built, grown)) {
+            Assert.assertEquals(REPORTS + 1, tree.size());
+            List<Report> found = tree.nearest(new Location(33.7, -84.4), 5,
+                    null);
+            Assert.assertEquals(5, found.size());
+            for (Report r : found) {
+                Assert.assertTrue(r.getReportNum() < REPORTS);
+            }
+            found = tree.nearest(new Location(33.9, -84.4), 1, null);
+            Assert.assertEquals(REPORTS, found.get(0).getReportNum());
+            found = tree.nearest(new Location(33.7, -84.4), 1,
+                    r -> ((PurityReport) r).getVirusPPM() == 99);
+            Assert.assertEquals(99,
+                    ((PurityReport) found.get(0)).getVirusPPM(), 0);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fxapp.DatabaseManager;
+import fxapp.Migration;
+import fxapp.Persistent;
+import fxapp.SchemaMigrator;
+import model.Location;
+import model.PurityReport;
+import model.SourceReport;
+
+public class MigrationTests {
+    private static final int TIMEOUT = 10000;
+
+    private File file;
+    private DatabaseManager db;
+
+    @Before
+    public void setUp() throws Exception {
+        file = TestDatabase.create();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestDatabase.close(db);
+        TestDatabase.delete(file);
+    }
+
+    /**
+     * Creates the report tables as the app stored them before the schema
+     * was versioned, with one report in each
+     */
+    private void createV1Database() throws Exception {
+        TestDatabase.execute(file,
+                "create table source_reports(id integer, latitude real, "
+                + "longitude real, water_type string, "
+                + "water_condition string, datetime integer);",
+                "create table purity_reports(id integer, latitude real, "
+                + "longitude real, virus_ppm real, contaminant_ppm real, "
+                + "water_condition string, datetime integer);",
+                "insert into source_reports values (1, 10.0, 20.0, 'Well', "
+                + "'Potable', 1000)",
+                "insert into purity_reports values (1, 10.0, 20.0, 5.0, 7.0, "
+                + "'Safe', 2000)");
+    }
+
+    /**
+     * Tests that a report stored after migrating a version 1 database
+     * reads back with every field in place, even though the migration
+     * added the code columns after the datetime column.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testInsertAfterMigratingV1() throws Exception {
+        createV1Database();
+        db = TestDatabase.open(file);
+        Assert.assertEquals(db.getMigrator().getLatestVersion(),
+                db.getMigrator().getCurrentVersion());
+
+        Date created = new Date(1478000000000L);
+        Persistent<SourceReport> sources =
+                db.getPersistence(SourceReport.class);
+        sources.store(new SourceReport(2, new Location(33.7, -84.4),
+                "Bottled", "Treatable-Clear", created));
+        SourceReport source = sources.retrieveOne("id", 2);
+        Assert.assertEquals(created, source.getCreationDatetime());
+        Assert.assertEquals("Bottled", source.getWaterType());
+        Assert.assertEquals("Treatable-Clear", source.getWaterCondition());
+        Assert.assertEquals(-84.4, source.getLocation().getLongitude(), 0);
+
+        Persistent<PurityReport> purities =
+                db.getPersistence(PurityReport.class);
+        purities.store(new PurityReport(2, new Location(33.7, -84.4), 13,
+                14, "Unsafe", created));
+        PurityReport purity = purities.retrieveOne("id", 2);
+        Assert.assertEquals(created, purity.getCreationDatetime());
+        Assert.assertEquals("Unsafe", purity.getWaterCondition());
+        Assert.assertEquals(14, purity.getContaminantPPM(), 0);
+
+        SourceReport legacy = sources.retrieveOne("id", 1);
+        Assert.assertEquals(new Date(1000), legacy.getCreationDatetime());
+        Assert.assertEquals("Well", legacy.getWaterType());
+        Assert.assertEquals("Potable", legacy.getWaterCondition());
+    }
+
+    /**
+     * Tests that migrating builds the spatial index from the existing
+     * reports, including legacy reports that share a number.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testSpatialIndexAfterMigratingV1() throws Exception {
+        createV1Database();
+        TestDatabase.execute(file, "insert into source_reports values (1, "
+                + "-40.0, 150.0, 'Lake', 'Waste', 3000)");
+        db = TestDatabase.open(file);
+
+        Persistent<SourceReport> sources =
+                db.getPersistence(SourceReport.class);
+        Assert.assertEquals(1, sources.retrieveWithin(9, 11, 19, 21).size());
+        SourceReport lake = sources.retrieveWithin(-41, -39, 149, 151).get(0);
+        Assert.assertEquals(new Date(3000), lake.getCreationDatetime());
+        Assert.assertEquals(1, db.getPersistence(PurityReport.class)
+                .retrieveWithin(9, 11, 19, 21).size());
+    }
+
+    /**
+     * Tests that the backfill fills in the codes of legacy reports but
+     * leaves their strings, and that new reports store both, so an older
+     * version of the app can still read the database.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testBackfillKeepsStrings() throws Exception {
+        createV1Database();
+        db = TestDatabase.open(file);
+        db.getPersistence(SourceReport.class).store(new SourceReport(2,
+                new Location(1, 1), "Bottled", "Waste", new Date(5000)));
+        TestDatabase.close(db);
+        db = null;
+
+        Assert.assertEquals(Arrays.asList("Well", "Bottled"),
+                TestDatabase.query(file, "SELECT water_type FROM "
+                + "source_reports ORDER BY id"));
+        Assert.assertEquals(Arrays.asList("Potable", "Waste"),
+                TestDatabase.query(file, "SELECT water_condition FROM "
+                + "source_reports ORDER BY id"));
+        Assert.assertEquals(Arrays.asList("Safe"), TestDatabase.query(file,
+                "SELECT water_condition FROM purity_reports"));
+        Assert.assertEquals(Arrays.asList("0", "0"), TestDatabase.query(file,
+                "SELECT water_type_id IS NULL OR water_condition_id IS NULL"
+                + " FROM source_reports"));
+        Assert.assertEquals(Arrays.asList("0"), TestDatabase.query(file,
+                "SELECT water_condition_id IS NULL FROM purity_reports"));
+    }
+
+    /**
+     * Makes a migrator holding the app's migrations as no-ops, so tests
+     * can add newer ones to a database the app has already migrated
+     * @return the migrator
+     */
+    private SchemaMigrator currentMigrator() {
+        SchemaMigrator migrator = new SchemaMigrator(db);
+        for (int v = 1; v <= db.getMigrator().getLatestVersion(); v++) {
+            migrator.add(new Migration(v, "existing", conn -> { }));
+        }
+        return migrator;
+    }
+
+    /**
+     * Counts the rows of a test table matching a condition
+     * @param where the condition
+     * @return the count
+     * @throws SQLException exception
+     */
+    private int count(String where) throws SQLException {
+        return Integer.parseInt(TestDatabase.query(file,
+                "SELECT count(*) FROM items WHERE " + where).get(0));
+    }
+
+    /**
+     * Tests that a failing migration rolls back every migration that ran
+     * with it.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testFailedMigrationRollsBack() throws Exception {
+        db = TestDatabase.open(file);
+        int before = db.getMigrator().getCurrentVersion();
+        SchemaMigrator migrator = currentMigrator();
+        migrator.add(new Migration(before + 1, "create items", conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("CREATE TABLE items (x integer)");
+            }
+        }));
+        migrator.add(new Migration(before + 2, "broken", conn -> {
+            throw new SQLException("broken migration");
+        }));
+        try {
+            db.inTransaction(conn -> migrator.migrate(conn, false));
+            Assert.fail("expected the broken migration to fail");
+        } catch (SQLException e) {
+            Assert.assertEquals("broken migration", e.getMessage());
+        }
+        Assert.assertEquals(0, TestDatabase.query(file, "SELECT name FROM "
+                + "sqlite_master WHERE name = 'items'").size());
+        Assert.assertEquals(String.valueOf(before), TestDatabase.query(file,
+                "SELECT max(version) FROM schema_version").get(0));
+    }
+
+    /**
+     * Tests that a backfill that fails part way keeps the chunks it
+     * committed, and that the next start resumes after them.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testBackfillResumes() throws Exception {
+        db = TestDatabase.open(file);
+        TestDatabase.execute(file, "CREATE TABLE items (done integer)",
+                "WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 "
+                + "FROM n WHERE i < 2500) INSERT INTO items SELECT 0 FROM n");
+        int version = db.getMigrator().getLatestVersion() + 1;
+        boolean[] failing = {true};
+        List<Long> starts = new ArrayList<>();
+        Migration.Backfill backfill = (conn, after, chunk) -> {
+            starts.add(after);
+            if (failing[0] && after > 0) {
+                throw new SQLException("interrupted backfill");
+            }
+            try (Statement stmt = conn.createStatement()) {
+                if (stmt.executeUpdate("UPDATE items SET done = 1 WHERE "
+                        + "rowid > " + after + " AND rowid <= "
+                        + (after + chunk)) == 0) {
+                    return -1;
+                }
+            }
+            return after + chunk;
+        };
+
+        SchemaMigrator first = currentMigrator();
+        first.add(new Migration(version, "mark items", conn -> { },
+                backfill));
+        db.inTransaction(conn -> first.migrate(conn, false));
+        first.startBackfills();
+        first.awaitBackfills();
+        Assert.assertEquals(1000, count("done = 1"));
+
+        failing[0] = false;
+        starts.clear();
+        SchemaMigrator restarted = currentMigrator();
+        restarted.add(new Migration(version, "mark items", conn -> { },
+                backfill));
+        db.inTransaction(conn -> restarted.migrate(conn, false));
+        restarted.startBackfills();
+        restarted.awaitBackfills();
+        Assert.assertEquals(1000L, (long) starts.get(0));
+        Assert.assertEquals(0, count("done = 0"));
+
+        starts.clear();
+        SchemaMigrator finished = currentMigrator();
+        finished.add(new Migration(version, "mark items", conn -> { },
+                backfill));
+        db.inTransaction(conn -> finished.migrate(conn, false));
+        finished.startBackfills();
+        finished.awaitBackfills();
+        Assert.assertEquals(0, starts.size());
+    }
+
+    /**
+     * Tests that a file that is not a database fails to open, instead of
+     * leaving a half-started database behind.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testUnreadableDatabaseFails() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            byte[] junk = new byte[4096];
+            Arrays.fill(junk, (byte) 7);
+            out.write(junk);
+        }
+        try {
+            db = TestDatabase.open(file);
+            Assert.fail("expected the file to be refused");
+        } catch (SQLException e) {
+            // expected
+        }
+    }
+}
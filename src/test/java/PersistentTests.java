@@ -0,0 +1,333 @@
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fxapp.DatabaseManager;
+import fxapp.Page;
+import fxapp.Persistent;
+import model.Location;
+import model.PurityReport;
+import model.PermissionLevel;
+import model.Profile;
+import model.SourceReport;
+import model.Token;
+import model.User;
+
+public class PersistentTests {
+    private static final int TIMEOUT = 10000;
+
+    private File file;
+    private DatabaseManager db;
+    private Persistent<SourceReport> sources;
+    private Persistent<User> users;
+
+    @Before
+    public void setUp() throws Exception {
+        file = TestDatabase.create();
+        db = TestDatabase.open(file);
+        sources = db.getPersistence(SourceReport.class);
+        users = db.getPersistence(User.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestDatabase.close(db);
+        TestDatabase.delete(file);
+    }
+
+    /**
+     * Makes source reports numbered from one, a day apart
+     * @param count how many reports to make
+     * @return the reports
+     */
+    private static List<SourceReport> sourceReports(int count) {
+        List<SourceReport> reports = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            reports.add(new SourceReport(i, new Location(i % 90, i % 180),
+                    "Well", "Potable", new Date(i * 86400000L)));
+        }
+        return reports;
+    }
+
+    /**
+     * Tests that storeAll saves every model and updateAll and deleteAll
+     * apply to exactly the models given.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testBulkWrites() throws Exception {
+        List<SourceReport> reports = sourceReports(1200);
+        Assert.assertEquals(1200, sources.storeAll(reports).length);
+        Assert.assertEquals(1200, sources.retrieveAll().size());
+
+        sources.updateAll(reports.subList(0, 600), "datetime", 7L);
+        Assert.assertEquals(600, sources.retrieveBetween("datetime", 7L, 8L)
+                .size());
+
+        sources.deleteAll(reports.subList(0, 1000));
+        List<SourceReport> left = sources.retrieveAll();
+        Assert.assertEquals(200, left.size());
+        for (SourceReport report : left) {
+            Assert.assertTrue(report.getReportNum() > 1000);
+        }
+    }
+
+    /**
+     * Tests that a bulk store that fails part way stores nothing, and
+     * that storing works again afterwards.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testStoreAllRollsBack() throws Exception {
+        users.store(new User("taken", new Token("t0"), PermissionLevel.USER));
+        List<User> batch = Arrays.asList(
+                new User("first", new Token("t1"), PermissionLevel.USER),
+                new User("taken", new Token("t2"), PermissionLevel.USER));
+        try {
+            users.storeAll(batch);
+            Assert.fail("expected the duplicate username to be refused");
+        } catch (SQLException e) {
+            // expected
+        }
+        Assert.assertNull(users.retrieveOne("username", "first"));
+        Assert.assertEquals(1, users.retrieveAll().size());
+
+        users.store(new User("second", new Token("t3"),
+                PermissionLevel.USER));
+        Assert.assertEquals(2, users.retrieveAll().size());
+    }
+
+    /**
+     * Tests that a bulk write joins a transaction the caller already has
+     * open, so a later failure undoes it too.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testBulkWriteJoinsTransaction() throws Exception {
+        try {
+            db.inTransaction(conn -> {
+                sources.storeAll(sourceReports(10));
+                throw new SQLException("abort");
+            });
+            Assert.fail("expected the transaction to fail");
+        } catch (SQLException e) {
+            Assert.assertEquals("abort", e.getMessage());
+        }
+        Assert.assertEquals(0, sources.retrieveAll().size());
+    }
+
+    /**
+     * Tests that users come back with their profiles from the one joined
+     * query, and with an empty profile when they have none.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testUsersJoinProfiles() throws Exception {
+        User alice = new User("alice", new Token("a"), PermissionLevel.ADMIN);
+        users.store(alice);
+        users.store(new User("bob", new Token("b"), PermissionLevel.USER));
+        int profile = db.getPersistence(Profile.class).store(new Profile(
+                "Alice", "alice@example.com", "1 Main St", "Atlanta", "GA",
+                "USA", "Water Co"));
+        users.update(alice, "profile", profile);
+
+        User found = users.retrieveOne("username", "alice");
+        Assert.assertEquals("Alice", found.getProfile().getName());
+        Assert.assertEquals("Water Co", found.getProfile().getOrg());
+        Assert.assertEquals(PermissionLevel.ADMIN, found.getPermissionLevel());
+        Assert.assertEquals(new Token("a"), found.getToken());
+
+        User none = users.retrieveOne("username", "bob");
+        Assert.assertEquals("", none.getProfile().getName());
+        Assert.assertEquals(2, users.retrieveAll().size());
+    }
+
+    /**
+     * Tests that a stream reads every row in order and gives its
+     * connection back once it runs out.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testStreamAll() throws Exception {
+        sources.setFetchSize(50);
+        sources.storeAll(sourceReports(300));
+        List<Integer> ids;
+        try (Stream<SourceReport> stream = sources.streamAll()) {
+            ids = stream.map(SourceReport::getReportNum)
+                    .collect(Collectors.toList());
+        }
+        Assert.assertEquals(300, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Assert.assertEquals(i + 1, (int) ids.get(i));
+        }
+        Assert.assertEquals(0, db.getPoolMetrics().getActive());
+    }
+
+    /**
+     * Tests that closing a stream part way gives its connection back.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testStreamClosedEarly() throws Exception {
+        sources.storeAll(sourceReports(100));
+        try (Stream<SourceReport> stream = sources.streamAll()) {
+            Assert.assertEquals(5, stream.limit(5).count());
+            Assert.assertEquals(1, db.getPoolMetrics().getActive());
+        }
+        Assert.assertEquals(0, db.getPoolMetrics().getActive());
+    }
+
+    /**
+     * Tests that forEach visits every row.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testForEach() throws Exception {
+        sources.storeAll(sourceReports(120));
+        int[] seen = new int[1];
+        sources.forEach(report -> seen[0]++);
+        Assert.assertEquals(120, seen[0]);
+        Assert.assertEquals(0, db.getPoolMetrics().getActive());
+    }
+
+    /**
+     * Tests that walking a table page by page visits every row once, in
+     * order, even when many rows share the ordering value.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testPagesVisitEveryRowOnce() throws Exception {
+        List<SourceReport> reports = sourceReports(250);
+        sources.storeAll(reports);
+        sources.updateAll(reports.subList(50, 150), "datetime", 0L);
+
+        List<Integer> seen = new ArrayList<>();
+        long lastTime = Long.MIN_VALUE;
+        Page.Token token = null;
+        int pages = 0;
+        do {
+            Page<SourceReport> page = sources.page("datetime", token, 40);
+            for (SourceReport report : page.getItems()) {
+                long time = report.getCreationDatetime().getTime();
+                Assert.assertTrue(time >= lastTime);
+                lastTime = time;
+                seen.add(report.getReportNum());
+            }
+            token = page.getNextToken();
+            pages++;
+        } while (token != null);
+
+        Assert.assertEquals(7, pages);
+        Assert.assertEquals(250, seen.size());
+        Assert.assertEquals(250, seen.stream().distinct().count());
+    }
+
+    /**
+     * Tests that rows with a NULL ordering value come first, and that
+     * pages starting inside and after them visit every row once.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testPagesWithNullKeys() throws Exception {
+        List<SourceReport> reports = sourceReports(100);
+        sources.storeAll(reports);
+        sources.updateAll(reports.subList(20, 50), "water_type", null);
+        sources.updateAll(reports.subList(60, 80), "water_type", "Lake");
+
+        List<Integer> seen = new ArrayList<>();
+        Page.Token token = null;
+        do {
+            Page<SourceReport> page = sources.page("water_type", token, 7);
+            for (SourceReport report : page.getItems()) {
+                seen.add(report.getReportNum());
+            }
+            token = page.getNextToken();
+        } while (token != null);
+
+        Assert.assertEquals(100, seen.size());
+        Assert.assertEquals(100, seen.stream().distinct().count());
+        for (int i = 0; i < 30; i++) {
+            Assert.assertEquals(21 + i, (int) seen.get(i));
+        }
+        for (int i = 30; i < 50; i++) {
+            Assert.assertEquals(61 + i - 30, (int) seen.get(i));
+        }
+    }
+
+    /**
+     * Tests that paging an empty table gives one empty last page.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testEmptyPage() throws Exception {
+        Page<SourceReport> page = sources.page("id", null, 10);
+        Assert.assertEquals(0, page.getItems().size());
+        Assert.assertFalse(page.hasMore());
+    }
+
+    /**
+     * Tests that the declared indexes exist and SQLite uses them.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testDeclaredIndexes() throws Exception {
+        List<String> indexes = TestDatabase.query(file, "SELECT name FROM "
+                + "sqlite_master WHERE type = 'index' ORDER BY name");
+        Assert.assertTrue(indexes.containsAll(Arrays.asList(
+                "purity_reports_datetime", "purity_reports_id",
+                "purity_reports_location", "source_reports_datetime",
+                "source_reports_id", "source_reports_location")));
+
+        String plan = String.join("\n", TestDatabase.query(file,
+                "EXPLAIN QUERY PLAN SELECT * FROM source_reports "
+                + "WHERE datetime >= 5 AND datetime < 10"));
+        Assert.assertTrue(plan, plan.contains("source_reports_datetime"));
+    }
+
+    /**
+     * Tests that opening an existing database again keeps its indexes
+     * and rows.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testReopen() throws Exception {
+        sources.storeAll(sourceReports(10));
+        TestDatabase.close(db);
+        db = TestDatabase.open(file);
+        Assert.assertEquals(10, db.getPersistence(SourceReport.class)
+                .retrieveAll().size());
+        Assert.assertEquals(1, TestDatabase.query(file, "SELECT name FROM "
+                + "sqlite_master WHERE name = 'source_reports_datetime'")
+                .size());
+    }
+
+    /**
+     * Tests that each model type finds its own persistence helper, and
+     * that registering a second helper for a type keeps the first.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testRegistry() throws Exception {
+        Assert.assertEquals("source_reports", sources.getTableName());
+        Assert.assertEquals("users", users.getTableName());
+        Assert.assertEquals("profiles",
+                db.getPersistence(Profile.class).getTableName());
+        Assert.assertEquals("purity_reports",
+                db.getPersistence(PurityReport.class).getTableName());
+
+        db.registerPersistence(new Persistent<>(SourceReport.class, db,
+                "other_reports", (Persistent.Reviver<SourceReport>) rs -> null));
+        Assert.assertSame(sources, db.getPersistence(SourceReport.class));
+    }
+
+    /**
+     * Tests that a type without a helper is refused.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testRegistryUnknownType() {
+        try {
+            db.getPersistence(String.class);
+            Assert.fail("expected no persistence for String");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+}
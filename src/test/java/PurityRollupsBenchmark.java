@@ -0,0 +1,64 @@
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import fxapp.PpmStats;
+import fxapp.PurityColumns;
+import fxapp.PurityRollups;
+import model.GeoBox;
+import model.Location;
+import model.PurityReport;
+
+/**
+ * Compares summarizing a region's purity readings month by month from
+ * the rollups, whose cells on the region's edge are checked through the
+ * column store, against filtering every report object, as the history
+ * screen did before the rollups.
+ */
+public class PurityRollupsBenchmark {
+    private static final int REPORTS = 1000000;
+    private static final long YEAR = 365L * 24 * 60 * 60 * 1000;
+
+    public static void main(String[] args) throws Exception {
+        Random rand = new Random(19);
+        List<PurityReport> reports = new ArrayList<>(REPORTS);
+        PurityColumns columns = new PurityColumns();
+        PurityRollups rollups = new PurityRollups(1, columns);
+        String[] conditions = {"Safe", "Treatable", "Unsafe"};
+        for (int i = 0; i < REPORTS; i++) {
+            PurityReport r = new PurityReport(i, new Location(
+                    180 * rand.nextDouble() - 90,
+                    360 * rand.nextDouble() - 180),
+                    rand.nextInt(100), rand.nextInt(100),
+                    conditions[rand.nextInt(3)],
+                    new Date((long) (rand.nextDouble() * 10 * YEAR)));
+            reports.add(r);
+            rollups.add(columns.add(r));
+        }
+        GeoBox box = new GeoBox(-45.5, 45.5, -90.5, 90.5);
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(5 * YEAR);
+        int year = calendar.get(Calendar.YEAR);
+
+        double rolled = Benchmarks.medianMillis(5, 11,
+                () -> rollups.monthlyVirus(box, year));
+        double objects = Benchmarks.medianMillis(5, 11, () -> {
+            PpmStats[] months = new PpmStats[12];
+            for (int m = 0; m < 12; m++) {
+                months[m] = new PpmStats();
+            }
+            for (PurityReport r : reports) {
+                if (box.contains(r.getLocation())
+                        && r.getReportYear() == year) {
+                    months[r.getReportMonth()].add(r.getVirusPPM());
+                }
+            }
+            return months;
+        });
+        Benchmarks.report("monthly virus, rollups", rolled, REPORTS);
+        Benchmarks.report("monthly virus, report objects", objects,
+                REPORTS);
+    }
+}
@@ -0,0 +1,109 @@
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fxapp.PpmStats;
+import fxapp.PurityColumns;
+import fxapp.PurityRollups;
+import model.GeoBox;
+import model.Location;
+import model.PurityReport;
+
+public class PurityRollupsTests {
+    private static final int TIMEOUT = 5000;
+    private static final int REPORTS = 5000;
+
+    private final List<PurityReport> reports = new ArrayList<>();
+    private PurityRollups rollups;
+
+    @Before
+    public void setUp() {
+        Random rand = new Random(18);
+        Calendar calendar = Calendar.getInstance();
+        PurityColumns columns = new PurityColumns();
+        rollups = new PurityRollups(10, columns);
+        for (int i = 0; i < REPORTS; i++) {
+            calendar.clear();
+            calendar.set(2015 + rand.nextInt(2), rand.nextInt(12),
+                    1 + rand.nextInt(28));
+            PurityReport r = new PurityReport(i, new Location(
+                    180 * rand.nextDouble() - 90,
+                    360 * rand.nextDouble() - 180),
+                    rand.nextInt(100), rand.nextInt(100), "Safe",
+                    calendar.getTime());
+            reports.add(r);
+            rollups.add(columns.add(r));
+        }
+    }
+
+    /**
+     * Summarizes the reports in a box one by one
+     * @param box   the region
+     * @param year  the year
+     * @param virus true for virus readings, false for contaminant
+     * @return twelve summaries, January first
+     */
+    private PpmStats[] bruteForce(GeoBox box, int year, boolean virus) {
+        PpmStats[] months = new PpmStats[12];
+        for (int m = 0; m < 12; m++) {
+            months[m] = new PpmStats();
+        }
+        for (PurityReport r : reports) {
+            if (box.contains(r.getLocation()) && r.getReportYear() == year) {
+                months[r.getReportMonth()].add(virus ? r.getVirusPPM()
+                        : r.getContaminantPPM());
+            }
+        }
+        return months;
+    }
+
+    /**
+     * Checks the rollups agree with summing the reports one by one
+     * @param box the region
+     */
+    private void assertMatches(GeoBox box) {
+        for (int year = 2014; year <= 2016; year++) {
+            PpmStats[][] actual = {rollups.monthlyVirus(box, year),
+                    rollups.monthlyContaminant(box, year)};
+            PpmStats[][] expected = {bruteForce(box, year, true),
+                    bruteForce(box, year, false)};
+            for (int k = 0; k < 2; k++) {
+                for (int m = 0; m < 12; m++) {
+                    Assert.assertEquals(expected[k][m].getCount(),
+                            actual[k][m].getCount());
+                    Assert.assertEquals(expected[k][m].getSum(),
+                            actual[k][m].getSum(), 1e-6);
+                    Assert.assertEquals(expected[k][m].getMax(),
+                            actual[k][m].getMax(), 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests regions on cell edges, inside single cells and across many.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testRegions() {
+        assertMatches(new GeoBox(-90, 90, -180, 180));
+        assertMatches(new GeoBox(0, 30, -60, 0));
+        assertMatches(new GeoBox(12.5, 17.5, 3.3, 8.8));
+        assertMatches(new GeoBox(-45.1, 33.3, -170.2, 99.9));
+        assertMatches(new GeoBox(89, 90, -180, 180));
+    }
+
+    /**
+     * Tests regions that cross the antimeridian.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testAntimeridian() {
+        assertMatches(new GeoBox(-30, 30, 170, -170));
+        assertMatches(new GeoBox(-90, 90, 175.5, -175.5));
+        assertMatches(new GeoBox(-20, 20, 0, -1));
+    }
+}
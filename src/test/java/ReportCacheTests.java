@@ -0,0 +1,45 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import fxapp.ReportCache;
+import model.Location;
+import model.PurityReport;
+
+public class ReportCacheTests {
+    private static final int TIMEOUT = 2000;
+
+    private static PurityReport report(int num) {
+        return new PurityReport(num, new Location(1, 1), 13, 13, "Safe");
+    }
+
+    /**
+     * Tests that reading a cached report again hands back the cached
+     * instance and counts a hit.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testInternReturnsCachedInstance() {
+        ReportCache<PurityReport> cache = new ReportCache<>(4);
+        PurityReport first = report(1);
+        Assert.assertSame(first, cache.intern(first));
+        Assert.assertSame(first, cache.intern(report(1)));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+    }
+
+    /**
+     * Tests that the least recently touched report is evicted once the
+     * cache is full.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testEvictsLeastRecentlyUsed() {
+        ReportCache<PurityReport> cache = new ReportCache<>(2);
+        PurityReport one = cache.intern(report(1));
+        cache.intern(report(2));
+        cache.intern(report(1));
+        cache.intern(report(3));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertSame(one, cache.intern(report(1)));
+        PurityReport two = report(2);
+        Assert.assertSame(two, cache.intern(two));
+    }
+}
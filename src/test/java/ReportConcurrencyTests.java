@@ -0,0 +1,159 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fxapp.DatabaseManager;
+import fxapp.PpmStats;
+import fxapp.ReportManager;
+import fxapp.ReportQuery;
+import model.GeoBox;
+import model.Location;
+import model.PurityReport;
+import model.Report;
+
+public class ReportConcurrencyTests {
+    private static final int TIMEOUT = 20000;
+    private static final int REPORTS = 1000;
+
+    private File file;
+    private DatabaseManager db;
+    private ReportManager rm;
+
+    @Before
+    public void setUp() throws Exception {
+        file = TestDatabase.create();
+        db = TestDatabase.open(file);
+        rm = new ReportManager(db);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        rm.close();
+        TestDatabase.close(db);
+        TestDatabase.delete(file);
+    }
+
+    /**
+     * Makes a purity report
+     * @param num the report number
+     * @return the report
+     */
+    private static PurityReport report(int num) {
+        return new PurityReport(num, new Location(num % 90, num % 180),
+                num % 100, 1, "Safe", new Date());
+    }
+
+    /**
+     * Counts this year's virus readings in a region from the rollups
+     * @param box the region
+     * @return how many readings the monthly summaries hold
+     */
+    private long virusCount(GeoBox box) {
+        int year = Calendar.getInstance().get(Calendar.YEAR);
+        long count = 0;
+        for (PpmStats month : rm.monthlyVirusPPM(box, year)) {
+            count += month.getCount();
+        }
+        return count;
+    }
+
+    /**
+     * Tests that adding reports does not wait for a search whose filter
+     * is still running.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testAddDuringSlowSearch() throws Exception {
+        rm.addPurityReport(report(1));
+        CountDownLatch searching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<List<Report>> found = new AtomicReference<>();
+        Thread reader = new Thread(() -> found.set(rm.nearest(
+                new Location(0, 0), 5, r -> {
+                    searching.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return true;
+                })));
+        reader.start();
+        Assert.assertTrue(searching.await(5, TimeUnit.SECONDS));
+
+        Thread writer = new Thread(() -> {
+            for (int i = 2; i <= 100; i++) {
+                rm.addPurityReport(report(i));
+            }
+        });
+        writer.start();
+        writer.join(5000);
+        Assert.assertFalse("adds waited for the search", writer.isAlive());
+
+        release.countDown();
+        reader.join();
+        Assert.assertFalse(found.get().isEmpty());
+        Assert.assertEquals(100, rm.find(ReportQuery.builder().build())
+                .size());
+    }
+
+    /**
+     * Tests that queries running while reports are added never fail and
+     * only see reports that were fully added.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testFindDuringAdds() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        GeoBox box = new GeoBox(-90, 90, -180, 180);
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            readers.add(new Thread(() -> {
+                try {
+                    int last = 0;
+                    while (!done.get()) {
+                        int seen = rm.find(ReportQuery.builder()
+                                .within(box).build()).size();
+                        Assert.assertTrue(seen >= last);
+                        last = seen;
+                        Assert.assertTrue(virusCount(box) <= REPORTS);
+                        for (Report r : rm.nearest(new Location(45, 90), 10,
+                                null)) {
+                            Assert.assertNotNull(r.getLocation());
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        for (Thread t : readers) {
+            t.start();
+        }
+        for (int i = 1; i <= REPORTS; i++) {
+            rm.addPurityReport(report(i));
+        }
+        done.set(true);
+        for (Thread t : readers) {
+            t.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        Assert.assertEquals(REPORTS, rm.find(ReportQuery.builder()
+                .within(box).build()).size());
+        Assert.assertEquals(REPORTS, virusCount(box));
+        Assert.assertEquals(REPORTS, rm.nearest(new Location(0, 0),
+                REPORTS * 2, null).size());
+    }
+}
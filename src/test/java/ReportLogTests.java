@@ -0,0 +1,97 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fxapp.ReportLog;
+
+public class ReportLogTests {
+    private static final int TIMEOUT = 10000;
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int PER_WRITER = 50000;
+
+    /**
+     * Tests that readers iterating snapshots while writers append always
+     * see complete elements in each writer's order, and that a reader
+     * parked in the middle of a snapshot does not hold up the writers.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testConcurrentAppendsAndSnapshots() throws Exception {
+        ReportLog<long[]> log = new ReportLog<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch writersDone = new CountDownLatch(WRITERS);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < WRITERS; w++) {
+            final long writer = w;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (long i = 0; i < PER_WRITER; i++) {
+                        log.add(new long[] {writer, i});
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    writersDone.countDown();
+                }
+            }));
+        }
+
+        // parks halfway through a snapshot until every writer is done
+        threads.add(new Thread(() -> {
+            try {
+                start.await();
+                while (log.size() == 0) {
+                    Thread.yield();
+                }
+                List<long[]> snapshot = log.snapshot();
+                Assert.assertTrue(writersDone.await(TIMEOUT,
+                        TimeUnit.MILLISECONDS));
+                for (long[] e : snapshot) {
+                    Assert.assertNotNull(e);
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        }));
+
+        for (int r = 0; r < READERS; r++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    int lastSize = 0;
+                    while (writersDone.getCount() > 0) {
+                        List<long[]> snapshot = log.snapshot();
+                        Assert.assertTrue(snapshot.size() >= lastSize);
+                        lastSize = snapshot.size();
+                        long[] next = new long[WRITERS];
+                        for (long[] e : snapshot) {
+                            Assert.assertEquals(next[(int) e[0]], e[1]);
+                            next[(int) e[0]]++;
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        Assert.assertEquals(WRITERS * PER_WRITER, log.size());
+        Assert.assertEquals(WRITERS * PER_WRITER, log.snapshot().size());
+    }
+}
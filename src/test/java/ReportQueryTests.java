@@ -0,0 +1,131 @@
+import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fxapp.DatabaseManager;
+import fxapp.QueryPlan;
+import fxapp.ReportManager;
+import fxapp.ReportQuery;
+import fxapp.RetentionConfig;
+import model.GeoBox;
+import model.Location;
+import model.PurityReport;
+import model.Report;
+import model.SourceReport;
+
+public class ReportQueryTests {
+    private static final int TIMEOUT = 2000;
+
+    private static PurityReport purity(double lat, double lon, double virus,
+                                       String condition, long time) {
+        return new PurityReport(1, new Location(lat, lon), virus, 13,
+                condition, new Date(time));
+    }
+
+    /**
+     * Tests that an empty query matches every report.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testEmptyQueryMatchesAll() {
+        ReportQuery query = ReportQuery.builder().build();
+        Assert.assertTrue(query.matches(purity(1, 1, 13, "Safe", 0)));
+        Assert.assertTrue(query.matches(new SourceReport(1,
+                new Location(1, 1), "Well", "Potable")));
+    }
+
+    /**
+     * Tests that each filter rejects reports outside it, with time ranges
+     * including their start and excluding their end.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testFilters() {
+        ReportQuery query = ReportQuery.builder()
+                .within(new GeoBox(0, 10, 0, 10))
+                .between(new Date(100), new Date(200))
+                .condition("Safe")
+                .virusPPM(10, 20)
+                .build();
+        Assert.assertTrue(query.matches(purity(5, 5, 15, "Safe", 100)));
+        Assert.assertFalse(query.matches(purity(5, 5, 15, "Safe", 200)));
+        Assert.assertFalse(query.matches(purity(50, 5, 15, "Safe", 150)));
+        Assert.assertFalse(query.matches(purity(5, 5, 15, "Unsafe", 150)));
+        Assert.assertFalse(query.matches(purity(5, 5, 25, "Safe", 150)));
+    }
+
+    /**
+     * Tests that a PPM threshold limits the query to purity reports.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testPpmFilterImpliesPurity() {
+        ReportQuery query = ReportQuery.builder()
+                .contaminantPPM(0, 100)
+                .build();
+        Assert.assertEquals(PurityReport.class, query.getType());
+        Assert.assertFalse(query.matches(new SourceReport(1,
+                new Location(1, 1), "Well", "Potable")));
+    }
+
+    /**
+     * Tests that a condition no report has had matches nothing.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testUnknownCondition() {
+        ReportQuery query = ReportQuery.builder()
+                .condition("no such condition")
+                .build();
+        Assert.assertEquals(-1, query.getConditionCode());
+        Assert.assertFalse(query.matches(purity(1, 1, 13, "Safe", 0)));
+    }
+
+    /**
+     * Tests that reports read from the cold tier are checked against the
+     * whole query, and that a table the query cannot match is not read.
+     */
+    @Test(timeout=TIMEOUT * 5)
+    public void testColdTierMatchesWholeQuery() throws Exception {
+        File file = TestDatabase.create();
+        DatabaseManager db = TestDatabase.open(file);
+        ReportManager rm = null;
+        try {
+            Date old = new Date(System.currentTimeMillis()
+                    - TimeUnit.DAYS.toMillis(400));
+            db.getPersistence(SourceReport.class).storeAll(Arrays.asList(
+                    new SourceReport(1, new Location(1, 1), "Well",
+                            "Potable", old),
+                    new SourceReport(2, new Location(2, 2), "Lake",
+                            "Waste", old)));
+            db.getPersistence(PurityReport.class).store(new PurityReport(1,
+                    new Location(1, 1), 50, 13, "Safe", old));
+            RetentionConfig retention = new RetentionConfig();
+            retention.setHotWindowMillis(TimeUnit.DAYS.toMillis(30));
+            rm = new ReportManager(db, retention);
+
+            ReportQuery sourcesOverPpm = ReportQuery.builder()
+                    .type(SourceReport.class).virusPPM(10, 100).build();
+            Assert.assertTrue(rm.find(sourcesOverPpm).isEmpty());
+            Assert.assertTrue(rm.explain(sourcesOverPpm).getSqlSteps()
+                    .isEmpty());
+
+            List<QueryPlan.SqlStep> steps = rm.explain(ReportQuery.builder()
+                    .virusPPM(10, 100).build()).getSqlSteps();
+            Assert.assertEquals(1, steps.size());
+            Assert.assertEquals(PurityReport.class, steps.get(0).getType());
+
+            List<Report> found = rm.find(ReportQuery.builder()
+                    .type(SourceReport.class).condition("Waste").build());
+            Assert.assertEquals(1, found.size());
+            Assert.assertEquals(2, found.get(0).getReportNum());
+        } finally {
+            if (rm != null) {
+                rm.close();
+            }
+            TestDatabase.close(db);
+            TestDatabase.delete(file);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fxapp.DatabaseManager;
+import fxapp.ReportChange;
+import fxapp.ReportManager;
+import fxapp.ReportSubscription;
+import model.Location;
+import model.SourceReport;
+
+public class ReportSubscriptionTests {
+    private static final int TIMEOUT = 10000;
+
+    private File file;
+    private DatabaseManager db;
+    private ReportManager rm;
+    private final List<Runnable> pending = new ArrayList<>();
+    private final List<ReportChange> changes = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        file = TestDatabase.create();
+        db = TestDatabase.open(file);
+        rm = new ReportManager(db);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        rm.close();
+        TestDatabase.close(db);
+        TestDatabase.delete(file);
+    }
+
+    /**
+     * Adds source reports
+     * @param first the first report number
+     * @param count how many reports to add
+     */
+    private void addReports(int first, int count) {
+        for (int i = first; i < first + count; i++) {
+            rm.addSourceReport(new SourceReport(i, new Location(1, 1),
+                    "Well", "Potable", new Date()));
+        }
+    }
+
+    /**
+     * Runs the deliveries the executor was given, as the FX thread would
+     * @return how many deliveries ran
+     */
+    private int runPending() {
+        List<Runnable> tasks = new ArrayList<>(pending);
+        pending.clear();
+        tasks.forEach(Runnable::run);
+        return tasks.size();
+    }
+
+    /**
+     * Tests that a burst of reports is delivered once, in the order the
+     * reports were added.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testBurstDeliveredOnce() {
+        rm.subscribe(changes::add, pending::add);
+        addReports(1, 100);
+        Assert.assertEquals(1, runPending());
+        Assert.assertEquals(1, changes.size());
+        List<?> added = changes.get(0).getAdded();
+        Assert.assertEquals(100, added.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(i + 1,
+                    ((SourceReport) added.get(i)).getReportNum());
+        }
+    }
+
+    /**
+     * Tests that reports added after a delivery start a new batch.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testNextBatchAfterDelivery() {
+        rm.subscribe(changes::add, pending::add);
+        addReports(1, 5);
+        runPending();
+        addReports(6, 3);
+        Assert.assertEquals(1, runPending());
+        Assert.assertEquals(2, changes.size());
+        Assert.assertEquals(3, changes.get(1).getAdded().size());
+        Assert.assertEquals(0, runPending());
+    }
+
+    /**
+     * Tests that cancelling drops the pending batch and stops later ones,
+     * while other subscriptions keep getting theirs.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testCancel() {
+        List<ReportChange> other = new ArrayList<>();
+        ReportSubscription s = rm.subscribe(changes::add, pending::add);
+        rm.subscribe(other::add, Runnable::run);
+        addReports(1, 10);
+        s.cancel();
+        runPending();
+        addReports(11, 10);
+        Assert.assertEquals(0, runPending());
+        Assert.assertTrue(changes.isEmpty());
+        Assert.assertEquals(20, other.size());
+    }
+}
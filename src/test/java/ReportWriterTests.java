@@ -0,0 +1,116 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fxapp.DatabaseManager;
+import fxapp.Page;
+import fxapp.ReportManager;
+import fxapp.ReportQuery;
+import fxapp.ReportWriter;
+import model.Location;
+import model.Report;
+import model.SourceReport;
+
+public class ReportWriterTests {
+    private static final int TIMEOUT = 10000;
+
+    private File file;
+    private DatabaseManager db;
+    private ReportManager rm;
+    private final AtomicInteger durable = new AtomicInteger();
+    private final AtomicInteger batches = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        file = TestDatabase.create();
+        db = TestDatabase.open(file);
+        rm = new ReportManager(db);
+        rm.enableWriteBehind(1000, 50, new ReportWriter.DurabilityListener() {
+            @Override
+            public void reportsDurable(List<Report> reports) {
+                durable.addAndGet(reports.size());
+                batches.incrementAndGet();
+            }
+
+            @Override
+            public void reportsFailed(List<Report> reports, Exception cause) {
+                cause.printStackTrace();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        rm.close();
+        TestDatabase.close(db);
+        TestDatabase.delete(file);
+    }
+
+    /**
+     * Adds source reports numbered from one
+     * @param count how many reports to add
+     */
+    private void addReports(int count) {
+        for (int i = 1; i <= count; i++) {
+            rm.addSourceReport(new SourceReport(i, new Location(1, 1),
+                    "Well", "Potable", new Date()));
+        }
+    }
+
+    /**
+     * Tests that pages include reports still queued for the writer.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testPagesSeeQueuedReports() throws Exception {
+        addReports(300);
+        List<SourceReport> paged = new ArrayList<>();
+        Page.Token token = null;
+        do {
+            Page<SourceReport> page = rm.getSourceReportPage(token, 100);
+            paged.addAll(page.getItems());
+            token = page.getNextToken();
+        } while (token != null);
+        Assert.assertEquals(300, paged.size());
+    }
+
+    /**
+     * Tests that flush waits for every queued report, which are written
+     * in the order they were added and in batches.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testFlushWritesInOrder() throws Exception {
+        addReports(500);
+        rm.flush();
+        Assert.assertEquals(500, durable.get());
+        Assert.assertTrue(batches.get() >= 10);
+
+        Page<SourceReport> page = db.getPersistence(SourceReport.class)
+                .page("rowid", null, 1000);
+        Assert.assertEquals(500, page.getItems().size());
+        for (int i = 0; i < 500; i++) {
+            Assert.assertEquals(i + 1, page.getItems().get(i).getReportNum());
+        }
+        Assert.assertEquals(500, rm.getWriterMetrics().getWritten());
+    }
+
+    /**
+     * Tests that closing the manager writes out what is still queued and
+     * that reports are visible in memory before they are written.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testCloseWritesQueuedReports() throws Exception {
+        addReports(200);
+        Assert.assertEquals(200, rm.find(ReportQuery.builder()
+                .type(SourceReport.class).build()).size());
+        rm.close();
+        Assert.assertEquals(200, db.getPersistence(SourceReport.class)
+                .retrieveAll().size());
+    }
+}
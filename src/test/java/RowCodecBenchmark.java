@@ -0,0 +1,76 @@
+import java.io.File;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import fxapp.DatabaseManager;
+import fxapp.Persistent;
+import model.Location;
+import model.PurityReport;
+import model.WaterTerms;
+
+/**
+ * Compares reading purity reports with the position-based codec against
+ * the by-name reviver it replaced, over the same table, by time and by
+ * bytes allocated per row.
+ */
+public class RowCodecBenchmark {
+    private static final int ROWS = 50000;
+
+    /**
+     * Reads a purity report looking each column up by name, the way the
+     * report revivers did before the codecs
+     * @param rs the current row
+     * @return the report
+     * @throws java.sql.SQLException exception
+     */
+    private static PurityReport byName(ResultSet rs)
+            throws java.sql.SQLException {
+        int code = rs.getInt("water_condition_id");
+        String condition = rs.wasNull() ? rs.getString("water_condition")
+                : WaterTerms.decode(code);
+        return new PurityReport(rs.getInt("id"),
+                new Location(rs.getDouble("latitude"),
+                        rs.getDouble("longitude")),
+                rs.getDouble("virus_ppm"), rs.getDouble("contaminant_ppm"),
+                condition, new Date(rs.getLong("datetime")));
+    }
+
+    public static void main(String[] args) throws Exception {
+        File file = TestDatabase.create();
+        DatabaseManager db = TestDatabase.open(file);
+        try {
+            Persistent<PurityReport> codec =
+                    db.getPersistence(PurityReport.class);
+            List<PurityReport> reports = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                reports.add(new PurityReport(i, new Location(i % 180 - 90,
+                        i % 360 - 180), i % 100, i % 50, "Safe",
+                        new Date(i * 60000L)));
+            }
+            codec.storeAll(reports);
+
+            Persistent<PurityReport> named = new Persistent<>(
+                    PurityReport.class, db, "purity_reports",
+                    RowCodecBenchmark::byName);
+            named.init();
+
+            double byPosition = Benchmarks.medianMillis(3, 9,
+                    codec::retrieveAll);
+            double byColumnName = Benchmarks.medianMillis(3, 9,
+                    named::retrieveAll);
+            Benchmarks.report("retrieveAll, codec by position", byPosition,
+                    ROWS);
+            Benchmarks.report("retrieveAll, reviver by name", byColumnName,
+                    ROWS);
+            Benchmarks.reportBytes("retrieveAll, codec by position",
+                    Benchmarks.allocatedBytes(3, codec::retrieveAll), ROWS);
+            Benchmarks.reportBytes("retrieveAll, reviver by name",
+                    Benchmarks.allocatedBytes(3, named::retrieveAll), ROWS);
+        } finally {
+            TestDatabase.close(db);
+            TestDatabase.delete(file);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+import java.io.File;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fxapp.DatabaseManager;
+import fxapp.Persistent;
+import model.Location;
+import model.PurityReport;
+import model.SourceReport;
+
+public class RowCodecTests {
+    private static final int TIMEOUT = 10000;
+
+    private File file;
+    private DatabaseManager db;
+
+    @Before
+    public void setUp() throws Exception {
+        file = TestDatabase.create();
+        db = TestDatabase.open(file);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestDatabase.close(db);
+        TestDatabase.delete(file);
+    }
+
+    /**
+     * Tests that tables read by column position can return no rows.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testEmptyResults() throws Exception {
+        Assert.assertEquals(0, db.getPersistence(SourceReport.class)
+                .retrieveAll().size());
+        Assert.assertNull(db.getPersistence(PurityReport.class)
+                .retrieveOne("id", 1));
+    }
+
+    /**
+     * Tests that every field survives a round trip through the codecs.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testRoundTrip() throws Exception {
+        Date created = new Date(1478000000000L);
+        Persistent<PurityReport> purities =
+                db.getPersistence(PurityReport.class);
+        purities.store(new PurityReport(7, new Location(-12.5, 130.25), 3.5,
+                4.5, "Treatable", created));
+        PurityReport purity = purities.retrieveOne("id", 7);
+        Assert.assertEquals(7, purity.getReportNum());
+        Assert.assertEquals(-12.5, purity.getLocation().getLatitude(), 0);
+        Assert.assertEquals(130.25, purity.getLocation().getLongitude(), 0);
+        Assert.assertEquals(3.5, purity.getVirusPPM(), 0);
+        Assert.assertEquals(4.5, purity.getContaminantPPM(), 0);
+        Assert.assertEquals("Treatable", purity.getWaterCondition());
+        Assert.assertEquals(created, purity.getCreationDatetime());
+
+        Persistent<SourceReport> sources =
+                db.getPersistence(SourceReport.class);
+        sources.store(new SourceReport(8, new Location(1, 2), "Lake",
+                "Waste", created));
+        SourceReport source = sources.retrieveAll().get(0);
+        Assert.assertEquals(8, source.getReportNum());
+        Assert.assertEquals("Lake", source.getWaterType());
+        Assert.assertEquals("Waste", source.getWaterCondition());
+        Assert.assertEquals(created, source.getCreationDatetime());
+    }
+}
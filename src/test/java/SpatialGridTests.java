@@ -0,0 +1,92 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fxapp.SpatialGrid;
+import model.GeoBox;
+import model.Location;
+import model.PurityReport;
+import model.Report;
+
+public class SpatialGridTests {
+    private static final int TIMEOUT = 2000;
+
+    private SpatialGrid<Report> grid;
+
+    /**
+     * Fills a grid with reports near the antimeridian, the poles and the
+     * origin.
+     */
+    @Before
+    public void setUp() {
+        grid = new SpatialGrid<>(1.0);
+        add(1, 10, 179.5);
+        add(2, 10, -179.5);
+        add(3, 10, 0);
+        add(4, 89.9, 45);
+        add(5, 89.9, -135);
+        add(6, -89.9, 0);
+        add(7, 90, 180);
+    }
+
+    private void add(int num, double lat, double lon) {
+        grid.add(new PurityReport(num, new Location(lat, lon), 1, 1, "safe"));
+    }
+
+    private List<Integer> within(GeoBox box) {
+        List<Integer> nums = new ArrayList<>();
+        grid.forEachWithin(box, r -> nums.add(r.getReportNum()));
+        nums.sort(null);
+        return nums;
+    }
+
+    private List<Integer> near(double lat, double lon, double km) {
+        List<Integer> nums = new ArrayList<>();
+        grid.forEachNear(new Location(lat, lon), km,
+                r -> nums.add(r.getReportNum()));
+        nums.sort(null);
+        return nums;
+    }
+
+    /**
+     * Tests that a box crossing the antimeridian finds reports on both
+     * sides of it and nothing in between.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testWithinAcrossAntimeridian() {
+        Assert.assertEquals(Arrays.asList(1, 2), within(new GeoBox(5, 15, 179, -179)));
+        Assert.assertEquals(Arrays.asList(3), within(new GeoBox(5, 15, -179, 179)));
+    }
+
+    /**
+     * Tests that the edges of the globe land in the grid.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testWithinWholeGlobe() {
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7),
+                within(new GeoBox(-90, 90, -180, 180)));
+    }
+
+    /**
+     * Tests that a radius search across the antimeridian finds the
+     * report on the other side.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testNearAcrossAntimeridian() {
+        Assert.assertEquals(Arrays.asList(1, 2), near(10, 179.9, 100));
+        Assert.assertEquals(Arrays.asList(2), near(10, -179.4, 50));
+    }
+
+    /**
+     * Tests that a radius search over a pole takes in every longitude.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testNearPole() {
+        Assert.assertEquals(Arrays.asList(4, 5, 7), near(89.95, 90, 50));
+        Assert.assertEquals(Arrays.asList(6), near(-90, 0, 20));
+    }
+}
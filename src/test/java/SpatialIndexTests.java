@@ -0,0 +1,119 @@
+import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import fxapp.DatabaseManager;
+import fxapp.Persistent;
+import model.Location;
+import model.SourceReport;
+
+public class SpatialIndexTests {
+    private static final int TIMEOUT = 10000;
+
+    private File file;
+    private DatabaseManager db;
+    private Persistent<SourceReport> sources;
+
+    @Before
+    public void setUp() throws Exception {
+        file = TestDatabase.create();
+        db = TestDatabase.open(file);
+        sources = db.getPersistence(SourceReport.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestDatabase.close(db);
+        TestDatabase.delete(file);
+    }
+
+    /**
+     * Makes a source report
+     * @param id  the report number
+     * @param lat latitude
+     * @param lon longitude
+     * @return the report
+     */
+    private static SourceReport report(int id, double lat, double lon) {
+        return new SourceReport(id, new Location(lat, lon), "Well",
+                "Potable", new Date(0));
+    }
+
+    /**
+     * Tests that a box finds the reports inside it, edges included.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testWithin() throws Exception {
+        sources.storeAll(Arrays.asList(report(1, 10, 10), report(2, 20, 20),
+                report(3, 10.5, 12), report(4, -10, 10)));
+        List<SourceReport> found = sources.retrieveWithin(10, 11, 10, 12);
+        Assert.assertEquals(2, found.size());
+    }
+
+    /**
+     * Tests that a box across the antimeridian finds the reports either
+     * side of it and none in between.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testWithinAcrossAntimeridian() throws Exception {
+        sources.storeAll(Arrays.asList(report(1, 0, 179), report(2, 0, -179),
+                report(3, 0, 0), report(4, 0, 180)));
+        List<SourceReport> found = sources.retrieveWithin(-1, 1, 170, -170);
+        Assert.assertEquals(3, found.size());
+        for (SourceReport report : found) {
+            Assert.assertTrue(report.getReportNum() != 3);
+        }
+    }
+
+    /**
+     * Tests that the index still points at the right reports after VACUUM
+     * renumbers the table's rowids.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testSurvivesVacuum() throws Exception {
+        SourceReport first = report(1, 0, 0);
+        sources.storeAll(Arrays.asList(first, report(2, 20, 20),
+                report(3, 30, 30)));
+        sources.delete(first);
+        TestDatabase.close(db);
+        TestDatabase.execute(file, "VACUUM");
+        db = TestDatabase.open(file);
+        sources = db.getPersistence(SourceReport.class);
+
+        List<SourceReport> found = sources.retrieveWithin(19, 21, 19, 21);
+        Assert.assertEquals(1, found.size());
+        Assert.assertEquals(2, found.get(0).getReportNum());
+        Assert.assertEquals(0, sources.retrieveWithin(-1, 1, -1, 1).size());
+    }
+
+    /**
+     * Tests that moving a report moves its index entry.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testUpdateMovesEntry() throws Exception {
+        SourceReport moved = report(1, 0, 0);
+        sources.store(moved);
+        sources.update(moved, "latitude", 45.0);
+        Assert.assertEquals(0, sources.retrieveWithin(-1, 1, -1, 1).size());
+        Assert.assertEquals(1, sources.retrieveWithin(44, 46, -1, 1).size());
+    }
+
+    /**
+     * Tests that deleted reports leave the index.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testDeleteRemovesEntries() throws Exception {
+        List<SourceReport> reports = Arrays.asList(report(1, 0, 0),
+                report(2, 0, 0), report(3, 0, 0));
+        sources.storeAll(reports);
+        sources.deleteAll(reports.subList(0, 2));
+        Assert.assertEquals("1", TestDatabase.query(file,
+                "SELECT count(*) FROM source_reports_rtree").get(0));
+    }
+}
@@ -0,0 +1,112 @@
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import fxapp.DatabaseConfig;
+import fxapp.DatabaseManager;
+import fxapp.Persistent;
+import fxapp.StorageProfile;
+import model.Location;
+import model.SourceReport;
+
+/**
+ * Compares storing reports under each storage profile against a plain
+ * connection in SQLite's default rollback-journal mode.
+ */
+public class StorageProfileBenchmark {
+    private static final int SINGLE = 500;
+    private static final int BULK = 20000;
+
+    /**
+     * Makes source reports numbered from a starting point
+     * @param first the first report number
+     * @param count how many reports to make
+     * @return the reports
+     */
+    private static List<SourceReport> reports(int first, int count) {
+        List<SourceReport> reports = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            reports.add(new SourceReport(i, new Location(i % 180 - 90,
+                    i % 360 - 180), "Well", "Potable", new Date()));
+        }
+        return reports;
+    }
+
+    /**
+     * Times committing reports one at a time and all at once under a
+     * storage profile
+     * @param profile the profile
+     * @throws Exception exception
+     */
+    private static void profile(StorageProfile profile) throws Exception {
+        File file = TestDatabase.create();
+        DatabaseConfig config = TestDatabase.config(file);
+        config.setStorageProfile(profile);
+        DatabaseManager db = new DatabaseManager(config);
+        try {
+            Persistent<SourceReport> p = db.getPersistence(SourceReport.class);
+            int[] next = {0};
+            double single = Benchmarks.medianMillis(1, 5, () -> {
+                for (SourceReport r : reports(next[0], SINGLE)) {
+                    p.store(r);
+                }
+                next[0] += SINGLE;
+                return next[0];
+            });
+            double bulk = Benchmarks.medianMillis(1, 5, () -> {
+                next[0] += BULK;
+                return p.storeAll(reports(next[0], BULK));
+            });
+            Benchmarks.report(profile + ", one commit each", single, SINGLE);
+            Benchmarks.report(profile + ", one commit for all", bulk, BULK);
+        } finally {
+            TestDatabase.close(db);
+            TestDatabase.delete(file);
+        }
+    }
+
+    /**
+     * Times committing rows one at a time on a plain connection with the
+     * default rollback journal and full sync, as before the profiles
+     * @throws Exception exception
+     */
+    private static void baseline() throws Exception {
+        File file = TestDatabase.create();
+        try (Connection conn = DriverManager.getConnection(
+                "jdbc:sqlite:" + file.getPath())) {
+            conn.createStatement().executeUpdate("create table source_reports"
+                    + "(id integer, latitude real, longitude real, "
+                    + "water_type_id integer, water_condition_id integer, "
+                    + "datetime integer)");
+            PreparedStatement ps = conn.prepareStatement("insert into "
+                    + "source_reports values (?, ?, ?, ?, ?, ?)");
+            double single = Benchmarks.medianMillis(1, 5, () -> {
+                for (SourceReport r : reports(0, SINGLE)) {
+                    ps.setInt(1, r.getReportNum());
+                    ps.setDouble(2, r.getLocation().getLatitude());
+                    ps.setDouble(3, r.getLocation().getLongitude());
+                    ps.setInt(4, 1);
+                    ps.setInt(5, 1);
+                    ps.setLong(6, r.getCreationDatetime().getTime());
+                    ps.executeUpdate();
+                }
+                return ps;
+            });
+            Benchmarks.report("rollback journal, one commit each", single,
+                    SINGLE);
+        } finally {
+            TestDatabase.delete(file);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        baseline();
+        for (StorageProfile profile : StorageProfile.values()) {
+            profile(profile);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import fxapp.DatabaseConfig;
+import fxapp.DatabaseManager;
+
+/**
+ * Temporary SQLite files for the tests that need a real database.
+ */
+class TestDatabase {
+
+    /**
+     * Creates an empty database file
+     * @return the file, remove it with delete
+     * @throws IOException if the file cannot be created
+     */
+    static File create() throws IOException {
+        return File.createTempFile("cleanwater", ".db");
+    }
+
+    /**
+     * Gets settings pointing at a database file
+     * @param file the database file
+     * @return the settings
+     */
+    static DatabaseConfig config(File file) {
+        DatabaseConfig config = new DatabaseConfig();
+        config.setUrl("jdbc:sqlite:" + file.getPath());
+        return config;
+    }
+
+    /**
+     * Opens a database file with the default settings
+     * @param file the database file
+     * @return the database, bootstrapped and migrated
+     * @throws Exception if it cannot be opened
+     */
+    static DatabaseManager open(File file) throws Exception {
+        return new DatabaseManager(config(file));
+    }
+
+    /**
+     * Runs statements on a plain connection, outside of the pool
+     * @param file the database file
+     * @param sql  the statements
+     * @throws SQLException exception
+     */
+    static void execute(File file, String... sql) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(
+                "jdbc:sqlite:" + file.getPath());
+             Statement stmt = conn.createStatement()) {
+            for (String s : sql) {
+                stmt.executeUpdate(s);
+            }
+        }
+    }
+
+    /**
+     * Runs a query on a plain connection, outside of the pool
+     * @param file the database file
+     * @param sql  the query
+     * @return the last column of each row, as a string
+     * @throws SQLException exception
+     */
+    static List<String> query(File file, String sql) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Connection conn = DriverManager.getConnection(
+                "jdbc:sqlite:" + file.getPath());
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                rows.add(rs.getString(rs.getMetaData().getColumnCount()));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Closes a database once its backfills are done
+     * @param db the database, may be null
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static void close(DatabaseManager db) throws InterruptedException {
+        if (db != null) {
+            db.getMigrator().awaitBackfills();
+            db.close();
+        }
+    }
+
+    /**
+     * Removes a database file and its write-ahead log
+     * @param file the database file
+     */
+    static void delete(File file) {
+        new File(file.getPath() + "-wal").delete();
+        new File(file.getPath() + "-shm").delete();
+        file.delete();
+    }
+}
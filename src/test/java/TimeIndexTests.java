@@ -0,0 +1,75 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import fxapp.TimeIndex;
+import model.Location;
+import model.PurityReport;
+import model.Report;
+
+public class TimeIndexTests {
+    private static final int TIMEOUT = 2000;
+
+    private static PurityReport at(int num, long time) {
+        return new PurityReport(num, new Location(1, 1), 13, 13, "safe",
+                new Date(time));
+    }
+
+    /**
+     * Tests that reports added out of order come back sorted by time and
+     * that ranges include their start and exclude their end.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testOutOfOrderRange() {
+        TimeIndex<Report> index = new TimeIndex<>();
+        index.add(at(1, 300));
+        index.add(at(2, 100));
+        index.add(at(3, 200));
+        index.add(at(4, 200));
+        index.add(at(5, 400));
+
+        List<Integer> nums = new ArrayList<>();
+        index.forEachBetween(200, 400, r -> nums.add(r.getReportNum()));
+        Assert.assertEquals(3, nums.size());
+        Assert.assertEquals(3, (int) nums.get(0));
+        Assert.assertEquals(4, (int) nums.get(1));
+        Assert.assertEquals(1, (int) nums.get(2));
+        Assert.assertEquals(0, index.between(500, 600).size());
+        Assert.assertEquals(5, index.between(Long.MIN_VALUE,
+                Long.MAX_VALUE).size());
+    }
+
+    /**
+     * Tests range counts against a scan over shuffled times.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testMatchesScan() {
+        Random rand = new Random(17);
+        List<Long> times = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            times.add((long) rand.nextInt(100000));
+        }
+        Collections.shuffle(times, rand);
+        TimeIndex<Report> index = new TimeIndex<>();
+        for (int i = 0; i < times.size(); i++) {
+            index.add(at(i, times.get(i)));
+        }
+        for (int i = 0; i < 100; i++) {
+            long from = rand.nextInt(100000);
+            long to = from + rand.nextInt(20000);
+            long expected = times.stream()
+                    .filter(t -> t >= from && t < to).count();
+            List<Report> found = index.between(from, to);
+            Assert.assertEquals(expected, found.size());
+            for (int j = 1; j < found.size(); j++) {
+                Assert.assertFalse(found.get(j)
+                        .wasReportCreatedFirst(found.get(j - 1)));
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.Location;
+import model.PurityReport;
+import model.SourceReport;
+import model.WaterTerms;
+
+public class WaterTermsTests {
+    private static final int TIMEOUT = 2000;
+
+    /**
+     * Tests that the seeded terms have fixed codes starting from 1 and
+     * that a missing term is NONE.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testSeededCodes() {
+        Assert.assertEquals(1, WaterTerms.find("Bottled"));
+        Assert.assertEquals(WaterTerms.seeded().size(),
+                WaterTerms.find("Unsafe"));
+        Assert.assertEquals(WaterTerms.NONE, WaterTerms.encode(null));
+        Assert.assertNull(WaterTerms.decode(WaterTerms.NONE));
+    }
+
+    /**
+     * Tests that a term outside the seeded set, such as a lower case
+     * condition, gets its own code and keeps its spelling.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testUnknownTerm() {
+        PurityReport report = new PurityReport(1, new Location(1, 1), 13, 13,
+                "safe");
+        Assert.assertEquals("safe", report.getWaterCondition());
+        Assert.assertNotEquals(WaterTerms.find("Safe"),
+                report.getWaterConditionCode());
+        Assert.assertEquals(WaterTerms.find("safe"),
+                report.getWaterConditionCode());
+        Assert.assertEquals(-1, WaterTerms.find("never seen"));
+    }
+
+    /**
+     * Tests that reports with the same term share one string instance.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testSharedInstance() {
+        SourceReport a = new SourceReport(1, new Location(1, 1),
+                new String("Well"), new String("Potable"));
+        SourceReport b = new SourceReport(2, new Location(1, 1),
+                new String("Well"), new String("Potable"));
+        Assert.assertSame(a.getWaterType(), b.getWaterType());
+        Assert.assertSame(a.getWaterCondition(), b.getWaterCondition());
+        Assert.assertEquals(a.getWaterTypeCode(), b.getWaterTypeCode());
+    }
+
+    /**
+     * Tests that rebinding a code takes it away from the term it had, so
+     * the old term is not encoded as a code now meaning something else.
+     */
+    @Test(timeout=TIMEOUT)
+    public void testRebindCode() {
+        int code = 1000;
+        WaterTerms.define(code, "rebind old");
+        Assert.assertEquals(code, WaterTerms.encode("rebind old"));
+        WaterTerms.define(code, "rebind new");
+        Assert.assertEquals("rebind new", WaterTerms.decode(code));
+        Assert.assertEquals(code, WaterTerms.encode("rebind new"));
+        Assert.assertEquals(-1, WaterTerms.find("rebind old"));
+        int moved = WaterTerms.encode("rebind old");
+        Assert.assertNotEquals(code, moved);
+        Assert.assertEquals("rebind old", WaterTerms.decode(moved));
+    }
+}